@@ -1,11 +1,15 @@
 package com.neria.manager;
 
+import com.neria.manager.adapters.ProviderHttpClients;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BackendJavaApplication {
   public static void main(String[] args) {
+    ProviderHttpClients.configureConnectionPool();
     SpringApplication.run(BackendJavaApplication.class, args);
   }
 }
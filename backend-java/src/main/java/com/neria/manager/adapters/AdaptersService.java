@@ -1,44 +1,442 @@
 package com.neria.manager.adapters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neria.manager.common.services.BlockingTaskExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AdaptersService {
-  private final ObjectMapper objectMapper;
+  // Hedge budget is kept in thousandths of a hedge.
+  private static final long HEDGE_CREDIT = 1000L;
 
-  public AdaptersService(ObjectMapper objectMapper) {
-    this.objectMapper = objectMapper;
+  // A provider ready to call: its id (for breakers and latency tracking), type and credentials.
+  public record Target(String providerId, String providerType, Map<String, Object> credentials) {}
+
+  // Outcome of a possibly hedged call. When a hedge fired, "extra" is the attempt that did not
+  // serve the response; extraResult is only set if it also completed before the race was decided,
+  // otherwise extraStreamedChars is all that is known about what it produced.
+  public record Invocation(
+      ProviderInvocationResult result,
+      Target servedBy,
+      boolean hedgeWon,
+      Target extra,
+      ProviderInvocationResult extraResult,
+      long extraStreamedChars) {
+    public boolean hedged() {
+      return extra != null;
+    }
   }
 
-  public ProviderInvocationResult invokeProvider(
-      String providerType, String credentialsJson, String model, Map<String, Object> payload) {
-    String normalized = providerType == null ? "openai" : providerType.toLowerCase();
-    Map<String, Object> credentials = safeParse(credentialsJson);
-    ProviderAdapter adapter = resolveAdapter(normalized);
-    return adapter.invoke(credentials, model, payload);
+  private final ProviderCircuitBreakers circuitBreakers;
+  private final ProviderLatencyHistograms latencyHistograms;
+  private final BlockingTaskExecutor blockingTaskExecutor;
+  private final Counter hedgesFired;
+  private final Counter hedgesWon;
+  private final AtomicLong hedgeCredits = new AtomicLong();
+  private final Duration maxTimeout;
+  private final long minTimeoutMs;
+  private final double timeoutMultiplier;
+  private final long timeoutMsPerOutputToken;
+  private final double hedgePercentile;
+  private final long hedgeMinDelayMs;
+  private final long hedgeCreditPerCall;
+  private final long hedgeCreditCap;
+  private final OpenAIAdapter openAIAdapter;
+  private final AzureOpenAIAdapter azureOpenAIAdapter;
+  private final AwsBedrockAdapter awsBedrockAdapter = new AwsBedrockAdapter();
+  private final GoogleVertexAdapter googleVertexAdapter = new GoogleVertexAdapter();
+  private final MockAdapter mockAdapter = new MockAdapter();
+
+  public AdaptersService(
+      ObjectMapper objectMapper,
+      ProviderHttpClients httpClients,
+      ProviderCircuitBreakers circuitBreakers,
+      ProviderLatencyHistograms latencyHistograms,
+      BlockingTaskExecutor blockingTaskExecutor,
+      MeterRegistry meterRegistry) {
+    this.circuitBreakers = circuitBreakers;
+    this.latencyHistograms = latencyHistograms;
+    this.blockingTaskExecutor = blockingTaskExecutor;
+    Duration streamIdleTimeout =
+        Duration.ofMillis(
+            Long.parseLong(
+                System.getenv().getOrDefault("PROVIDER_STREAM_IDLE_TIMEOUT_MS", "30000")));
+    this.openAIAdapter = new OpenAIAdapter(objectMapper, httpClients, streamIdleTimeout);
+    this.azureOpenAIAdapter = new AzureOpenAIAdapter(objectMapper, httpClients, streamIdleTimeout);
+    this.hedgesFired =
+        Counter.builder("provider.hedge.fired")
+            .description("Duplicate provider requests sent after the hedge delay")
+            .register(meterRegistry);
+    this.hedgesWon =
+        Counter.builder("provider.hedge.won")
+            .description("Hedged requests where the duplicate answered first")
+            .register(meterRegistry);
+    this.maxTimeout =
+        Duration.ofSeconds(
+            Long.parseLong(System.getenv().getOrDefault("PROVIDER_HTTP_REQUEST_TIMEOUT", "60")));
+    this.minTimeoutMs =
+        Long.parseLong(System.getenv().getOrDefault("ADAPTIVE_TIMEOUT_MIN_MS", "5000"));
+    this.timeoutMultiplier =
+        Double.parseDouble(System.getenv().getOrDefault("ADAPTIVE_TIMEOUT_MULTIPLIER", "3"));
+    this.timeoutMsPerOutputToken =
+        Long.parseLong(System.getenv().getOrDefault("ADAPTIVE_TIMEOUT_MS_PER_OUTPUT_TOKEN", "20"));
+    this.hedgePercentile =
+        Double.parseDouble(System.getenv().getOrDefault("HEDGE_PERCENTILE", "0.95"));
+    this.hedgeMinDelayMs =
+        Long.parseLong(System.getenv().getOrDefault("HEDGE_MIN_DELAY_MS", "100"));
+    // At most this share of hedge-enabled calls may fire a duplicate, so a slow provider does not
+    // suddenly receive twice the traffic.
+    this.hedgeCreditPerCall =
+        Math.round(
+            HEDGE_CREDIT
+                * Double.parseDouble(System.getenv().getOrDefault("HEDGE_BUDGET_RATIO", "0.1")));
+    this.hedgeCreditCap = 10 * HEDGE_CREDIT;
   }
 
-  private ProviderAdapter resolveAdapter(String providerType) {
-    return switch (providerType) {
-      case "azure", "azure_openai", "azure-openai" -> new AzureOpenAIAdapter(objectMapper);
-      case "aws", "bedrock", "aws-bedrock" -> new AwsBedrockAdapter();
-      case "google", "gcp", "vertex", "vertex-ai" -> new GoogleVertexAdapter();
-      case "mock" -> new MockAdapter();
-      case "openai" -> new OpenAIAdapter(objectMapper);
-      default -> new OpenAIAdapter(objectMapper);
-    };
+  // Calls the primary target and, when a hedge target is given and this provider/model has
+  // enough latency history, fires the same request at the hedge target once the primary has
+  // been outstanding for HEDGE_PERCENTILE of its usual latency. The first attempt to produce
+  // output wins; the other is cancelled.
+  public Invocation invoke(
+      Target primary,
+      Target hedge,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    long delayMs = hedge != null ? hedgeDelayMs(primary, model, onDelta != null) : -1L;
+    if (delayMs < 0) {
+      ProviderInvocationResult result =
+          invokeThroughBreaker(
+              primary.providerId(),
+              primary.providerType(),
+              primary.credentials(),
+              model,
+              payload,
+              onDelta);
+      return new Invocation(result, primary, false, null, null, 0L);
+    }
+    hedgeCredits.updateAndGet(credits -> Math.min(hedgeCreditCap, credits + hedgeCreditPerCall));
+    return new HedgeRace(primary, hedge, model, payload, onDelta).run(delayMs);
+  }
+
+  // Calls a configured provider through its circuit breaker: refused immediately while the
+  // circuit is open, otherwise the outcome and latency (time to first token when streaming) are
+  // fed back into it. The request timeout adapts to the latency seen for this provider and model.
+  public ProviderInvocationResult invokeThroughBreaker(
+      String providerId,
+      String providerType,
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    return invokeThroughBreaker(
+        providerId, providerType, credentials, model, payload, onDelta, () -> false);
   }
 
-  private Map<String, Object> safeParse(String credentials) {
-    if (credentials == null || credentials.isBlank()) {
-      return Map.of();
+  // cancelled tells a hedge race's deliberate cancellation apart from a failure of the call.
+  private ProviderInvocationResult invokeThroughBreaker(
+      String providerId,
+      String providerType,
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta,
+      BooleanSupplier cancelled) {
+    if (!circuitBreakers.tryAcquire(providerId)) {
+      throw new ProviderUnavailableException("Provider temporarily unavailable (circuit open)");
     }
+    ProviderAdapter adapter =
+        resolveAdapter(providerType == null ? "openai" : providerType.toLowerCase());
+    String latencyKey = ProviderLatencyHistograms.key(providerId, model, onDelta != null);
+    Duration timeout = timeoutFor(latencyKey, payload, onDelta != null);
+    long started = System.nanoTime();
+    AtomicLong firstDeltaMs = new AtomicLong(-1L);
+    AtomicBoolean downstreamFailed = new AtomicBoolean(false);
     try {
-      return objectMapper.readValue(credentials, Map.class);
-    } catch (Exception ex) {
-      throw new IllegalArgumentException("Invalid credentials format, must be JSON");
+      ProviderInvocationResult result;
+      if (onDelta != null) {
+        result =
+            adapter.stream(
+                credentials,
+                model,
+                payload,
+                delta -> {
+                  firstDeltaMs.compareAndSet(-1L, elapsedMs(started));
+                  try {
+                    onDelta.accept(delta);
+                  } catch (RuntimeException ex) {
+                    downstreamFailed.set(true);
+                    throw ex;
+                  }
+                },
+                timeout);
+      } else {
+        result = adapter.invoke(credentials, model, payload, timeout);
+      }
+      long latency = latencyMs(firstDeltaMs, started);
+      circuitBreakers.record(providerId, latency, null);
+      latencyHistograms.record(latencyKey, latency);
+      return result;
+    } catch (RuntimeException ex) {
+      boolean timedOut = isTimeout(ex);
+      // A timed-out call took at least the timeout. Leaving it out would let the percentiles,
+      // and with them the adaptive timeout, shrink to the calls fast enough to succeed.
+      if (timedOut && !cancelled.getAsBoolean()) {
+        latencyHistograms.record(latencyKey, timeout.toMillis());
+      }
+      // The client went away mid-stream or a hedge race cancelled the call; neither says
+      // anything about the provider. Nor does running out of an adaptive deadline shorter than
+      // PROVIDER_HTTP_REQUEST_TIMEOUT: that is this call's budget, and the deadline grows with
+      // the recorded timeouts until a provider that really hangs fails at the full timeout.
+      if (downstreamFailed.get()
+          || cancelled.getAsBoolean()
+          || (timedOut && firstDeltaMs.get() < 0 && timeout.compareTo(maxTimeout) < 0)) {
+        circuitBreakers.release(providerId);
+      } else {
+        circuitBreakers.record(providerId, latencyMs(firstDeltaMs, started), ex);
+      }
+      throw ex;
+    }
+  }
+
+  public double healthScore(String providerId) {
+    return circuitBreakers.healthScore(providerId);
+  }
+
+  // p99 of recent calls times ADAPTIVE_TIMEOUT_MULTIPLIER, kept between ADAPTIVE_TIMEOUT_MIN_MS
+  // and PROVIDER_HTTP_REQUEST_TIMEOUT. It bounds the wait for the response headers: for streams
+  // that is the time to first token, which the histogram tracks, and gaps between chunks are left
+  // to PROVIDER_STREAM_IDLE_TIMEOUT_MS. A non-streaming response only starts once the whole
+  // completion is generated, so the caller's max_tokens adds ADAPTIVE_TIMEOUT_MS_PER_OUTPUT_TOKEN
+  // per token and a long completion is not cut off for being unusual for its model.
+  private Duration timeoutFor(String latencyKey, Map<String, Object> payload, boolean stream) {
+    long p99 = latencyHistograms.percentile(latencyKey, 0.99);
+    if (p99 < 0) {
+      return maxTimeout;
+    }
+    long timeoutMs = Math.max(minTimeoutMs, Math.round(p99 * timeoutMultiplier));
+    if (!stream) {
+      timeoutMs += TokenEstimates.maxOutput(payload) * timeoutMsPerOutputToken;
+    }
+    return Duration.ofMillis(Math.min(maxTimeout.toMillis(), timeoutMs));
+  }
+
+  private long hedgeDelayMs(Target primary, String model, boolean stream) {
+    long percentile =
+        latencyHistograms.percentile(
+            ProviderLatencyHistograms.key(primary.providerId(), model, stream), hedgePercentile);
+    return percentile < 0 ? -1L : Math.max(hedgeMinDelayMs, percentile);
+  }
+
+  private boolean takeHedgeCredit() {
+    while (true) {
+      long credits = hedgeCredits.get();
+      if (credits < HEDGE_CREDIT) {
+        return false;
+      }
+      if (hedgeCredits.compareAndSet(credits, credits - HEDGE_CREDIT)) {
+        return true;
+      }
+    }
+  }
+
+  private static boolean isTimeout(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof HttpTimeoutException) {
+        return true;
+      }
     }
+    return false;
+  }
+
+  private long latencyMs(AtomicLong firstDeltaMs, long started) {
+    long firstDelta = firstDeltaMs.get();
+    return firstDelta >= 0 ? firstDelta : elapsedMs(started);
+  }
+
+  private long elapsedMs(long started) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+  }
+
+  // Attempt 0 is the primary, attempt 1 the hedge. Both run on the blocking executor so the
+  // caller can wait for whichever finishes first and cancel (interrupt) the other. An attempt's
+  // cancelled flag is set before the interrupt so its failure is not blamed on the provider.
+  private final class HedgeRace {
+    private final Target[] targets;
+    private final String model;
+    private final Map<String, Object> payload;
+    private final Consumer<String> onDelta;
+    private final AtomicInteger winner = new AtomicInteger(-1);
+    private final AtomicLongArray streamedChars = new AtomicLongArray(2);
+    private final AtomicIntegerArray cancelled = new AtomicIntegerArray(2);
+    private final CompletableFuture<Integer> decided = new CompletableFuture<>();
+    private final FutureTask<?>[] tasks = new FutureTask<?>[2];
+    private final ProviderInvocationResult[] results = new ProviderInvocationResult[2];
+    private final RuntimeException[] failures = new RuntimeException[2];
+    private int running;
+
+    HedgeRace(
+        Target primary,
+        Target hedge,
+        String model,
+        Map<String, Object> payload,
+        Consumer<String> onDelta) {
+      this.targets = new Target[] {primary, hedge};
+      this.model = model;
+      this.payload = payload;
+      this.onDelta = onDelta;
+    }
+
+    Invocation run(long delayMs) {
+      launch(0);
+      int won;
+      try {
+        try {
+          won = decided.get(delayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          if (takeHedgeCredit() && launch(1)) {
+            hedgesFired.increment();
+          }
+          won = decided.get();
+        }
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException failure) {
+          throw failure;
+        }
+        throw new IllegalStateException("Provider request failed", ex.getCause());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        cancel(0);
+        cancel(1);
+        throw new IllegalStateException("Provider request interrupted", ex);
+      }
+      synchronized (this) {
+        if (tasks[1] == null) {
+          return new Invocation(results[won], targets[won], false, null, null, 0L);
+        }
+        if (won == 1) {
+          hedgesWon.increment();
+        }
+        int other = 1 - won;
+        return new Invocation(
+            results[won],
+            targets[won],
+            won == 1,
+            targets[other],
+            results[other],
+            streamedChars.get(other));
+      }
+    }
+
+    private boolean launch(int index) {
+      FutureTask<Void> task = new FutureTask<>(() -> attempt(index), null);
+      synchronized (this) {
+        if (decided.isDone()) {
+          return false;
+        }
+        tasks[index] = task;
+        running++;
+      }
+      blockingTaskExecutor.execute(task);
+      return true;
+    }
+
+    private void attempt(int index) {
+      Target target = targets[index];
+      Consumer<String> deltas =
+          onDelta == null
+              ? null
+              : delta -> {
+                if (claim(index)) {
+                  onDelta.accept(delta);
+                } else {
+                  streamedChars.addAndGet(index, delta.length());
+                  throw new CancellationException("Hedged attempt lost the race");
+                }
+              };
+      ProviderInvocationResult result;
+      try {
+        result =
+            invokeThroughBreaker(
+                target.providerId(),
+                target.providerType(),
+                target.credentials(),
+                model,
+                payload,
+                deltas,
+                () -> cancelled.get(index) == 1);
+      } catch (RuntimeException ex) {
+        synchronized (this) {
+          failures[index] = ex;
+          running--;
+          if (winner.get() == index) {
+            decided.completeExceptionally(ex);
+          } else if (winner.get() == -1 && running == 0) {
+            decided.completeExceptionally(failures[0] != null ? failures[0] : ex);
+          }
+        }
+        return;
+      }
+      boolean won = claim(index);
+      synchronized (this) {
+        results[index] = result;
+        running--;
+        if (won) {
+          decided.complete(index);
+        }
+      }
+    }
+
+    // The first attempt to stream a token or return a response wins and cancels the other.
+    private boolean claim(int index) {
+      if (winner.get() == index) {
+        return true;
+      }
+      if (winner.compareAndSet(-1, index)) {
+        cancel(1 - index);
+        return true;
+      }
+      return false;
+    }
+
+    private void cancel(int index) {
+      cancelled.set(index, 1);
+      FutureTask<?> task;
+      synchronized (this) {
+        task = tasks[index];
+      }
+      if (task != null) {
+        task.cancel(true);
+      }
+    }
+  }
+
+  private ProviderAdapter resolveAdapter(String providerType) {
+    return switch (providerType) {
+      case "azure", "azure_openai", "azure-openai" -> azureOpenAIAdapter;
+      case "aws", "bedrock", "aws-bedrock" -> awsBedrockAdapter;
+      case "google", "gcp", "vertex", "vertex-ai" -> googleVertexAdapter;
+      case "mock" -> mockAdapter;
+      case "openai" -> openAIAdapter;
+      default -> openAIAdapter;
+    };
   }
 }
@@ -2,27 +2,114 @@ package com.neria.manager.adapters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AzureOpenAIAdapter implements ProviderAdapter {
-  private final HttpClient httpClient;
+  // First GA api-version that accepts stream_options.include_usage.
+  private static final String STREAM_USAGE_API_VERSION = "2024-10-21";
+
+  private final ProviderHttpClients httpClients;
   private final ObjectMapper objectMapper;
+  private final Duration streamIdleTimeout;
 
-  public AzureOpenAIAdapter(ObjectMapper objectMapper) {
+  public AzureOpenAIAdapter(
+      ObjectMapper objectMapper, ProviderHttpClients httpClients, Duration streamIdleTimeout) {
     this.objectMapper = objectMapper;
-    this.httpClient =
-        HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(20)).build();
+    this.httpClients = httpClients;
+    this.streamIdleTimeout = streamIdleTimeout;
   }
 
   @Override
   public ProviderInvocationResult invoke(
-      Map<String, Object> credentials, String model, Map<String, Object> payload) {
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Duration timeout) {
+    HttpRequest request = buildRequest(credentials, model, payload, false, timeout);
+
+    HttpResponse<String> response;
+    try {
+      response = httpClients.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (IOException ex) {
+      throw new IllegalStateException("Azure OpenAI request failed", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Azure OpenAI request interrupted", ex);
+    }
+
+    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+      throw new ProviderResponseException(
+          "Azure OpenAI error: " + response.statusCode() + " " + response.body(), response.statusCode());
+    }
+
+    Map<String, Object> parsed;
+    try {
+      parsed = objectMapper.readValue(response.body(), Map.class);
+    } catch (Exception ex) {
+      throw new IllegalStateException("Unable to parse Azure response", ex);
+    }
+
+    Map<String, Object> usage =
+        parsed.get("usage") instanceof Map ? (Map<String, Object>) parsed.get("usage") : Map.of();
+    int tokensIn = toInt(usage.get("prompt_tokens"));
+    int tokensOut = toInt(usage.get("completion_tokens"));
+
+    return new ProviderInvocationResult(parsed, tokensIn, tokensOut, 0d);
+  }
+
+  @Override
+  public ProviderInvocationResult stream(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta,
+      Duration timeout) {
+    HttpRequest request = buildRequest(credentials, model, payload, true, timeout);
+
+    HttpResponse<InputStream> response;
+    try {
+      response = httpClients.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (IOException ex) {
+      throw new IllegalStateException("Azure OpenAI request failed", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Azure OpenAI request interrupted", ex);
+    }
+
+    try (StreamIdleTimeout idle = new StreamIdleTimeout(response.body(), streamIdleTimeout);
+        Stream<String> lines = idle.lines()) {
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new ProviderResponseException(
+            "Azure OpenAI error: "
+                + response.statusCode()
+                + " "
+                + lines.collect(Collectors.joining("\n")),
+            response.statusCode());
+      }
+      try {
+        return ChatCompletionStream.read(lines, objectMapper, model, payload, onDelta);
+      } catch (UncheckedIOException ex) {
+        throw idle.failure("Azure OpenAI", ex);
+      }
+    }
+  }
+
+  private HttpRequest buildRequest(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      boolean stream,
+      Duration timeout) {
     String endpoint = String.valueOf(credentials.getOrDefault("endpoint", ""));
     String apiKey = String.valueOf(credentials.getOrDefault("apiKey", ""));
     String deployment = String.valueOf(credentials.getOrDefault("deployment", model));
@@ -38,6 +125,12 @@ public class AzureOpenAIAdapter implements ProviderAdapter {
     if (payload != null) {
       body.putAll(payload);
     }
+    if (stream) {
+      body.put("stream", true);
+      if (apiVersion.compareTo(STREAM_USAGE_API_VERSION) >= 0) {
+        body.put("stream_options", Map.of("include_usage", true));
+      }
+    }
 
     String json;
     try {
@@ -49,40 +142,13 @@ public class AzureOpenAIAdapter implements ProviderAdapter {
     String url =
         endpoint + "/openai/deployments/" + deployment + "/chat/completions?api-version=" + apiVersion;
 
-    HttpRequest request =
-        HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .timeout(Duration.ofSeconds(60))
-            .header("api-key", apiKey)
-            .header("Content-Type", "application/json")
-            .POST(HttpRequest.BodyPublishers.ofString(json))
-            .build();
-
-    HttpResponse<String> response;
-    try {
-      response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-    } catch (IOException | InterruptedException ex) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException("Azure OpenAI request failed", ex);
-    }
-
-    if (response.statusCode() < 200 || response.statusCode() >= 300) {
-      throw new IllegalStateException("Azure OpenAI error: " + response.statusCode() + " " + response.body());
-    }
-
-    Map<String, Object> parsed;
-    try {
-      parsed = objectMapper.readValue(response.body(), Map.class);
-    } catch (Exception ex) {
-      throw new IllegalStateException("Unable to parse Azure response", ex);
-    }
-
-    Map<String, Object> usage =
-        parsed.get("usage") instanceof Map ? (Map<String, Object>) parsed.get("usage") : Map.of();
-    int tokensIn = toInt(usage.get("prompt_tokens"));
-    int tokensOut = toInt(usage.get("completion_tokens"));
-
-    return new ProviderInvocationResult(parsed, tokensIn, tokensOut, 0d);
+    return HttpRequest.newBuilder()
+        .uri(URI.create(url))
+        .timeout(timeout)
+        .header("api-key", apiKey)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json))
+        .build();
   }
 
   private int toInt(Object value) {
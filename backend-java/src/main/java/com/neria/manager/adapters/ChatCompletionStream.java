@@ -0,0 +1,132 @@
+package com.neria.manager.adapters;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public final class ChatCompletionStream {
+  private static final TypeReference<Map<String, Object>> CHUNK = new TypeReference<>() {};
+
+  private ChatCompletionStream() {}
+
+  // Azure API versions before stream_options support send no usage chunk; tokens are then
+  // estimated from the prompt and the streamed text so usage and budgets are not left at zero.
+  static ProviderInvocationResult read(
+      Stream<String> lines,
+      ObjectMapper objectMapper,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    StringBuilder content = new StringBuilder();
+    String id = null;
+    String finishReason = null;
+    int tokensIn = 0;
+    int tokensOut = 0;
+    boolean usageReported = false;
+
+    Iterator<String> iterator = lines.iterator();
+    while (iterator.hasNext()) {
+      String line = iterator.next();
+      if (line == null || !line.startsWith("data:")) {
+        continue;
+      }
+      String data = line.substring("data:".length()).trim();
+      if (data.isEmpty()) {
+        continue;
+      }
+      if ("[DONE]".equals(data)) {
+        break;
+      }
+      Map<String, Object> chunk;
+      try {
+        chunk = objectMapper.readValue(data, CHUNK);
+      } catch (Exception ex) {
+        throw new IllegalStateException("Unable to parse stream chunk", ex);
+      }
+      if (id == null && chunk.get("id") != null) {
+        id = String.valueOf(chunk.get("id"));
+      }
+      if (chunk.get("usage") instanceof Map<?, ?> usage) {
+        tokensIn = toInt(usage.get("prompt_tokens"));
+        tokensOut = toInt(usage.get("completion_tokens"));
+        usageReported = true;
+      }
+      if (!(chunk.get("choices") instanceof List<?> choices) || choices.isEmpty()) {
+        continue;
+      }
+      if (!(choices.get(0) instanceof Map<?, ?> choice)) {
+        continue;
+      }
+      if (choice.get("finish_reason") != null) {
+        finishReason = String.valueOf(choice.get("finish_reason"));
+      }
+      if (choice.get("delta") instanceof Map<?, ?> delta && delta.get("content") != null) {
+        String text = String.valueOf(delta.get("content"));
+        if (!text.isEmpty()) {
+          content.append(text);
+          onDelta.accept(text);
+        }
+      }
+    }
+
+    if (!usageReported) {
+      tokensIn = (int) TokenEstimates.prompt(payload);
+      tokensOut = (int) TokenEstimates.completion(content.length());
+    }
+
+    Map<String, Object> message = new HashMap<>();
+    message.put("role", "assistant");
+    message.put("content", content.toString());
+    Map<String, Object> choice = new HashMap<>();
+    choice.put("index", 0);
+    choice.put("message", message);
+    choice.put("finish_reason", finishReason);
+    Map<String, Object> output = new HashMap<>();
+    output.put("id", id);
+    output.put("object", "chat.completion");
+    output.put("model", model);
+    output.put("choices", List.of(choice));
+    Map<String, Object> usage = new HashMap<>();
+    usage.put("prompt_tokens", tokensIn);
+    usage.put("completion_tokens", tokensOut);
+    usage.put("total_tokens", tokensIn + tokensOut);
+    if (!usageReported) {
+      usage.put("estimated", true);
+    }
+    output.put("usage", usage);
+    return new ProviderInvocationResult(output, tokensIn, tokensOut, 0d);
+  }
+
+  public static String extractContent(Object output) {
+    if (!(output instanceof Map<?, ?> parsed)) {
+      return null;
+    }
+    if (parsed.get("choices") instanceof List<?> choices
+        && !choices.isEmpty()
+        && choices.get(0) instanceof Map<?, ?> first
+        && first.get("message") instanceof Map<?, ?> message
+        && message.get("content") != null) {
+      return String.valueOf(message.get("content"));
+    }
+    return null;
+  }
+
+  private static int toInt(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(String.valueOf(value));
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+}
@@ -1,11 +1,15 @@
 package com.neria.manager.adapters;
 
+import java.time.Duration;
 import java.util.Map;
 
 public class GoogleVertexAdapter implements ProviderAdapter {
   @Override
   public ProviderInvocationResult invoke(
-      Map<String, Object> credentials, String model, Map<String, Object> payload) {
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Duration timeout) {
     throw new IllegalStateException("Google Vertex adapter not implemented in Java backend yet");
   }
 }
@@ -2,65 +2,51 @@ package com.neria.manager.adapters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class OpenAIAdapter implements ProviderAdapter {
-  private final HttpClient httpClient;
+  private final ProviderHttpClients httpClients;
   private final ObjectMapper objectMapper;
+  private final Duration streamIdleTimeout;
 
-  public OpenAIAdapter(ObjectMapper objectMapper) {
+  public OpenAIAdapter(
+      ObjectMapper objectMapper, ProviderHttpClients httpClients, Duration streamIdleTimeout) {
     this.objectMapper = objectMapper;
-    this.httpClient =
-        HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(20)).build();
+    this.httpClients = httpClients;
+    this.streamIdleTimeout = streamIdleTimeout;
   }
 
   @Override
   public ProviderInvocationResult invoke(
-      Map<String, Object> credentials, String model, Map<String, Object> payload) {
-    String apiKey = String.valueOf(credentials.getOrDefault("apiKey", ""));
-    String baseUrl = String.valueOf(credentials.getOrDefault("baseUrl", "https://api.openai.com"));
-    if (apiKey == null || apiKey.isBlank()) {
-      throw new IllegalArgumentException("Missing OpenAI apiKey");
-    }
-
-    Map<String, Object> body = new HashMap<>();
-    body.put("model", model);
-    if (payload != null) {
-      body.putAll(payload);
-    }
-
-    String json;
-    try {
-      json = objectMapper.writeValueAsString(body);
-    } catch (Exception ex) {
-      throw new IllegalArgumentException("Invalid payload JSON");
-    }
-
-    HttpRequest request =
-        HttpRequest.newBuilder()
-            .uri(URI.create(baseUrl + "/v1/chat/completions"))
-            .timeout(Duration.ofSeconds(60))
-            .header("Authorization", "Bearer " + apiKey)
-            .header("Content-Type", "application/json")
-            .POST(HttpRequest.BodyPublishers.ofString(json))
-            .build();
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Duration timeout) {
+    HttpRequest request = buildRequest(credentials, model, payload, false, timeout);
 
     HttpResponse<String> response;
     try {
-      response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-    } catch (IOException | InterruptedException ex) {
-      Thread.currentThread().interrupt();
+      response = httpClients.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (IOException ex) {
       throw new IllegalStateException("OpenAI request failed", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("OpenAI request interrupted", ex);
     }
 
     if (response.statusCode() < 200 || response.statusCode() >= 300) {
-      throw new IllegalStateException("OpenAI error: " + response.statusCode() + " " + response.body());
+      throw new ProviderResponseException(
+          "OpenAI error: " + response.statusCode() + " " + response.body(), response.statusCode());
     }
 
     Map<String, Object> parsed;
@@ -78,6 +64,78 @@ public class OpenAIAdapter implements ProviderAdapter {
     return new ProviderInvocationResult(parsed, tokensIn, tokensOut, 0d);
   }
 
+  @Override
+  public ProviderInvocationResult stream(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta,
+      Duration timeout) {
+    HttpRequest request = buildRequest(credentials, model, payload, true, timeout);
+
+    HttpResponse<InputStream> response;
+    try {
+      response = httpClients.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (IOException ex) {
+      throw new IllegalStateException("OpenAI request failed", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("OpenAI request interrupted", ex);
+    }
+
+    try (StreamIdleTimeout idle = new StreamIdleTimeout(response.body(), streamIdleTimeout);
+        Stream<String> lines = idle.lines()) {
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new ProviderResponseException(
+            "OpenAI error: " + response.statusCode() + " " + lines.collect(Collectors.joining("\n")),
+            response.statusCode());
+      }
+      try {
+        return ChatCompletionStream.read(lines, objectMapper, model, payload, onDelta);
+      } catch (UncheckedIOException ex) {
+        throw idle.failure("OpenAI", ex);
+      }
+    }
+  }
+
+  private HttpRequest buildRequest(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      boolean stream,
+      Duration timeout) {
+    String apiKey = String.valueOf(credentials.getOrDefault("apiKey", ""));
+    String baseUrl = String.valueOf(credentials.getOrDefault("baseUrl", "https://api.openai.com"));
+    if (apiKey == null || apiKey.isBlank()) {
+      throw new IllegalArgumentException("Missing OpenAI apiKey");
+    }
+
+    Map<String, Object> body = new HashMap<>();
+    body.put("model", model);
+    if (payload != null) {
+      body.putAll(payload);
+    }
+    if (stream) {
+      body.put("stream", true);
+      body.put("stream_options", Map.of("include_usage", true));
+    }
+
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(body);
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Invalid payload JSON");
+    }
+
+    return HttpRequest.newBuilder()
+        .uri(URI.create(baseUrl + "/v1/chat/completions"))
+        .timeout(timeout)
+        .header("Authorization", "Bearer " + apiKey)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json))
+        .build();
+  }
+
   private int toInt(Object value) {
     if (value instanceof Number) {
       return ((Number) value).intValue();
@@ -1,7 +1,39 @@
 package com.neria.manager.adapters;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ProviderAdapter {
-  ProviderInvocationResult invoke(Map<String, Object> credentials, String model, Map<String, Object> payload);
+  Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
+  ProviderInvocationResult invoke(
+      Map<String, Object> credentials, String model, Map<String, Object> payload, Duration timeout);
+
+  default ProviderInvocationResult invoke(
+      Map<String, Object> credentials, String model, Map<String, Object> payload) {
+    return invoke(credentials, model, payload, DEFAULT_TIMEOUT);
+  }
+
+  default ProviderInvocationResult stream(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    return stream(credentials, model, payload, onDelta, DEFAULT_TIMEOUT);
+  }
+
+  default ProviderInvocationResult stream(
+      Map<String, Object> credentials,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta,
+      Duration timeout) {
+    ProviderInvocationResult result = invoke(credentials, model, payload, timeout);
+    String content = ChatCompletionStream.extractContent(result.getOutput());
+    if (content != null && !content.isEmpty()) {
+      onDelta.accept(content);
+    }
+    return result;
+  }
 }
@@ -0,0 +1,287 @@
+package com.neria.manager.adapters;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+// One circuit breaker per provider. A closed circuit opens when, over the last CIRCUIT_WINDOW_MS,
+// enough calls failed or were slower than CIRCUIT_SLOW_CALL_MS; while open, calls are refused
+// without touching the network. After CIRCUIT_OPEN_MS a few probe calls decide whether it closes
+// again. Latency and success rate are also folded into EWMAs that give each provider a 0..1
+// health score for routing and for the "providers" actuator endpoint.
+@Component
+public class ProviderCircuitBreakers {
+  private static final int BUCKETS = 10;
+
+  public enum State {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+
+  public record Snapshot(
+      String providerId,
+      State state,
+      double healthScore,
+      double latencyEwmaMs,
+      double successRateEwma,
+      int windowCalls,
+      int windowFailures,
+      int windowSlowCalls) {}
+
+  private static final class Breaker {
+    volatile State state = State.CLOSED;
+    long openedAt;
+    int probesInFlight;
+    double latencyEwmaMs = Double.NaN;
+    double successEwma = 1d;
+    // Ring of time buckets; an epoch that does not match the current one marks a stale bucket.
+    final long[] epochs = new long[BUCKETS];
+    final int[] calls = new int[BUCKETS];
+    final int[] failures = new int[BUCKETS];
+    final int[] slowCalls = new int[BUCKETS];
+  }
+
+  private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final long windowMs;
+  private final long bucketMs;
+  private final long openMs;
+  private final long slowCallMs;
+  private final double errorRateThreshold;
+  private final double slowCallRateThreshold;
+  private final int minCalls;
+  private final int halfOpenProbes;
+  private final double ewmaAlpha;
+
+  public ProviderCircuitBreakers(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.windowMs =
+        Math.max(BUCKETS, Long.parseLong(System.getenv().getOrDefault("CIRCUIT_WINDOW_MS", "60000")));
+    this.bucketMs = windowMs / BUCKETS;
+    this.openMs = Long.parseLong(System.getenv().getOrDefault("CIRCUIT_OPEN_MS", "30000"));
+    this.slowCallMs = Long.parseLong(System.getenv().getOrDefault("CIRCUIT_SLOW_CALL_MS", "30000"));
+    this.errorRateThreshold =
+        Double.parseDouble(System.getenv().getOrDefault("CIRCUIT_ERROR_RATE", "0.5"));
+    this.slowCallRateThreshold =
+        Double.parseDouble(System.getenv().getOrDefault("CIRCUIT_SLOW_CALL_RATE", "0.5"));
+    this.minCalls = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_MIN_CALLS", "10"));
+    this.halfOpenProbes =
+        Math.max(1, Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_HALF_OPEN_PROBES", "1")));
+    this.ewmaAlpha = Double.parseDouble(System.getenv().getOrDefault("CIRCUIT_EWMA_ALPHA", "0.2"));
+  }
+
+  // Upstream errors and timeouts count against the provider; a request it rejected as invalid
+  // (4xx other than timeout / rate limit) says nothing about its health.
+  public static boolean isProviderFault(Throwable failure) {
+    // The calling thread was interrupted (hedge cancelled, shutdown): not the provider's doing, and
+    // the next candidate would only fail on the same interrupted thread.
+    if (failure != null && failure.getCause() instanceof InterruptedException) {
+      return false;
+    }
+    if (failure instanceof ProviderResponseException response) {
+      int status = response.getStatusCode();
+      return status >= 500 || status == 408 || status == 429;
+    }
+    return failure instanceof IllegalStateException;
+  }
+
+  public boolean tryAcquire(String providerId) {
+    Breaker breaker = breaker(providerId);
+    if (breaker.state == State.CLOSED) {
+      return true;
+    }
+    synchronized (breaker) {
+      if (breaker.state == State.OPEN) {
+        if (System.currentTimeMillis() - breaker.openedAt < openMs) {
+          return false;
+        }
+        breaker.state = State.HALF_OPEN;
+        breaker.probesInFlight = 0;
+      }
+      if (breaker.state == State.HALF_OPEN) {
+        if (breaker.probesInFlight >= halfOpenProbes) {
+          return false;
+        }
+        breaker.probesInFlight++;
+      }
+      return true;
+    }
+  }
+
+  // A null failure records a success.
+  public void record(String providerId, long latencyMs, Throwable failure) {
+    if (failure != null && !isProviderFault(failure)) {
+      release(providerId);
+      return;
+    }
+    boolean fault = failure != null;
+    boolean slow = latencyMs >= slowCallMs;
+    Breaker breaker = breaker(providerId);
+    synchronized (breaker) {
+      long now = System.currentTimeMillis();
+      breaker.latencyEwmaMs =
+          Double.isNaN(breaker.latencyEwmaMs)
+              ? latencyMs
+              : ewmaAlpha * latencyMs + (1d - ewmaAlpha) * breaker.latencyEwmaMs;
+      breaker.successEwma = ewmaAlpha * (fault ? 0d : 1d) + (1d - ewmaAlpha) * breaker.successEwma;
+      switch (breaker.state) {
+        case HALF_OPEN -> {
+          if (fault || slow) {
+            open(breaker, now);
+          } else {
+            close(breaker);
+          }
+        }
+        case CLOSED -> {
+          addOutcome(breaker, now, fault, slow);
+          if (shouldOpen(breaker, now)) {
+            open(breaker, now);
+          }
+        }
+        case OPEN -> {
+          // A call that started before the circuit opened; the EWMAs above are all it feeds.
+        }
+      }
+    }
+  }
+
+  // The call ended for a reason unrelated to the provider; only hand back a probe slot.
+  public void release(String providerId) {
+    Breaker breaker = breakers.get(providerId);
+    if (breaker == null || breaker.state != State.HALF_OPEN) {
+      return;
+    }
+    synchronized (breaker) {
+      if (breaker.state == State.HALF_OPEN && breaker.probesInFlight > 0) {
+        breaker.probesInFlight--;
+      }
+    }
+  }
+
+  // Providers that have not been called yet are assumed healthy.
+  public double healthScore(String providerId) {
+    Breaker breaker = providerId != null ? breakers.get(providerId) : null;
+    if (breaker == null) {
+      return 1d;
+    }
+    synchronized (breaker) {
+      return score(breaker);
+    }
+  }
+
+  public List<Snapshot> snapshots() {
+    List<Snapshot> result = new ArrayList<>(breakers.size());
+    long now = System.currentTimeMillis();
+    breakers.forEach(
+        (providerId, breaker) -> {
+          synchronized (breaker) {
+            int[] totals = totals(breaker, now);
+            result.add(
+                new Snapshot(
+                    providerId,
+                    breaker.state,
+                    score(breaker),
+                    Double.isNaN(breaker.latencyEwmaMs) ? 0d : breaker.latencyEwmaMs,
+                    breaker.successEwma,
+                    totals[0],
+                    totals[1],
+                    totals[2]));
+          }
+        });
+    result.sort(Comparator.comparing(Snapshot::providerId));
+    return result;
+  }
+
+  private Breaker breaker(String providerId) {
+    Breaker existing = breakers.get(providerId);
+    if (existing != null) {
+      return existing;
+    }
+    return breakers.computeIfAbsent(
+        providerId,
+        key -> {
+          Breaker created = new Breaker();
+          Gauge.builder("provider.health.score", this, registry -> registry.healthScore(key))
+              .tag("providerId", key)
+              .description("EWMA-based provider health, 0 (down) to 1 (fast and error-free)")
+              .register(meterRegistry);
+          Gauge.builder("provider.circuit.state", created, breaker -> breaker.state.ordinal())
+              .tag("providerId", key)
+              .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+              .register(meterRegistry);
+          return created;
+        });
+  }
+
+  // Success rate scaled down as latency approaches and passes the slow-call threshold.
+  private double score(Breaker breaker) {
+    if (breaker.state == State.OPEN) {
+      return 0d;
+    }
+    if (Double.isNaN(breaker.latencyEwmaMs)) {
+      return breaker.successEwma;
+    }
+    return breaker.successEwma * slowCallMs / (slowCallMs + breaker.latencyEwmaMs);
+  }
+
+  private void addOutcome(Breaker breaker, long now, boolean fault, boolean slow) {
+    long epoch = now / bucketMs;
+    int index = (int) (epoch % BUCKETS);
+    if (breaker.epochs[index] != epoch) {
+      breaker.epochs[index] = epoch;
+      breaker.calls[index] = 0;
+      breaker.failures[index] = 0;
+      breaker.slowCalls[index] = 0;
+    }
+    breaker.calls[index]++;
+    if (fault) {
+      breaker.failures[index]++;
+    }
+    if (slow) {
+      breaker.slowCalls[index]++;
+    }
+  }
+
+  private int[] totals(Breaker breaker, long now) {
+    long epoch = now / bucketMs;
+    int[] totals = new int[3];
+    for (int i = 0; i < BUCKETS; i++) {
+      if (epoch - breaker.epochs[i] < BUCKETS) {
+        totals[0] += breaker.calls[i];
+        totals[1] += breaker.failures[i];
+        totals[2] += breaker.slowCalls[i];
+      }
+    }
+    return totals;
+  }
+
+  private boolean shouldOpen(Breaker breaker, long now) {
+    int[] totals = totals(breaker, now);
+    if (totals[0] < minCalls) {
+      return false;
+    }
+    return totals[1] >= errorRateThreshold * totals[0]
+        || totals[2] >= slowCallRateThreshold * totals[0];
+  }
+
+  private void open(Breaker breaker, long now) {
+    breaker.state = State.OPEN;
+    breaker.openedAt = now;
+    breaker.probesInFlight = 0;
+  }
+
+  private void close(Breaker breaker) {
+    breaker.state = State.CLOSED;
+    breaker.probesInFlight = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      breaker.calls[i] = 0;
+      breaker.failures[i] = 0;
+      breaker.slowCalls[i] = 0;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.neria.manager.adapters;
+
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "providers")
+public class ProviderHealthEndpoint {
+  private final ProviderCircuitBreakers circuitBreakers;
+
+  public ProviderHealthEndpoint(ProviderCircuitBreakers circuitBreakers) {
+    this.circuitBreakers = circuitBreakers;
+  }
+
+  @ReadOperation
+  public List<ProviderCircuitBreakers.Snapshot> providers() {
+    return circuitBreakers.snapshots();
+  }
+}
@@ -0,0 +1,75 @@
+package com.neria.manager.adapters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProviderHttpClients {
+  private final ConcurrentHashMap<String, HttpClient> clients = new ConcurrentHashMap<>();
+  private final Duration connectTimeout;
+  private final MeterRegistry meterRegistry;
+  private final ConcurrentHashMap<String, Counter> requestCounters = new ConcurrentHashMap<>();
+
+  public ProviderHttpClients(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.connectTimeout =
+        Duration.ofSeconds(
+            Long.parseLong(System.getenv().getOrDefault("PROVIDER_HTTP_CONNECT_TIMEOUT", "20")));
+    Gauge.builder("provider.http.clients", clients, ConcurrentHashMap::size)
+        .description("Pooled HTTP clients, one per provider endpoint")
+        .register(meterRegistry);
+  }
+
+  // The JDK client reads these once, on first use, so they must be set before the context starts.
+  public static void configureConnectionPool() {
+    String poolSize = System.getenv("PROVIDER_HTTP_POOL_SIZE");
+    if (poolSize != null && !poolSize.isBlank()) {
+      System.setProperty("jdk.httpclient.connectionPoolSize", poolSize.trim());
+    }
+    String keepAlive = System.getenv("PROVIDER_HTTP_KEEPALIVE_SECONDS");
+    if (keepAlive != null && !keepAlive.isBlank()) {
+      System.setProperty("jdk.httpclient.keepalive.timeout", keepAlive.trim());
+    }
+  }
+
+  public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+      throws IOException, InterruptedException {
+    String endpoint = endpointKey(request.uri());
+    HttpClient client = clients.computeIfAbsent(endpoint, this::createClient);
+    HttpResponse<T> response = client.send(request, handler);
+    requestCounter(endpoint, response.version()).increment();
+    return response;
+  }
+
+  private Counter requestCounter(String endpoint, HttpClient.Version version) {
+    return requestCounters.computeIfAbsent(
+        endpoint + "|" + version.name(),
+        key ->
+            Counter.builder("provider.http.requests")
+                .tag("endpoint", endpoint)
+                .tag("version", version.name())
+                .register(meterRegistry));
+  }
+
+  private HttpClient createClient(String endpoint) {
+    return HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(connectTimeout)
+        .build();
+  }
+
+  private String endpointKey(URI uri) {
+    String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "https";
+    String authority = uri.getRawAuthority() != null ? uri.getRawAuthority().toLowerCase() : "";
+    return scheme + "://" + authority;
+  }
+}
@@ -0,0 +1,92 @@
+package com.neria.manager.adapters;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.stereotype.Component;
+
+// Latency distribution per provider, model and call mode, used to pick hedge delays and request
+// timeouts. Buckets grow by 2^(1/4) (about 19%), so percentiles are accurate to one bucket.
+// Each key keeps the histogram being filled and the previous one; they rotate every
+// LATENCY_WINDOW_MS so the estimate follows the provider as its latency drifts.
+@Component
+public class ProviderLatencyHistograms {
+  private static final int STEPS_PER_DOUBLING = 4;
+  // 2^(80/4) ms is about 17 minutes, far beyond any request timeout.
+  private static final int BUCKETS = 81;
+
+  private static final class Window {
+    volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+    volatile long rotatedAt = System.currentTimeMillis();
+  }
+
+  private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+  private final long windowMs;
+  private final long minSamples;
+
+  public ProviderLatencyHistograms() {
+    this.windowMs = Long.parseLong(System.getenv().getOrDefault("LATENCY_WINDOW_MS", "300000"));
+    this.minSamples = Long.parseLong(System.getenv().getOrDefault("LATENCY_MIN_SAMPLES", "20"));
+  }
+
+  public static String key(String providerId, String model, boolean stream) {
+    return providerId + "|" + model + (stream ? "|stream" : "|call");
+  }
+
+  public void record(String key, long latencyMs) {
+    Window window = windows.computeIfAbsent(key, k -> new Window());
+    long now = System.currentTimeMillis();
+    if (now - window.rotatedAt >= windowMs) {
+      synchronized (window) {
+        if (now - window.rotatedAt >= windowMs) {
+          window.previous = window.current;
+          window.current = new AtomicLongArray(BUCKETS);
+          window.rotatedAt = now;
+        }
+      }
+    }
+    window.current.incrementAndGet(bucket(latencyMs));
+  }
+
+  // Upper bound of the bucket holding the given quantile, or -1 while there are too few samples
+  // to say anything.
+  public long percentile(String key, double quantile) {
+    Window window = windows.get(key);
+    if (window == null) {
+      return -1L;
+    }
+    AtomicLongArray current = window.current;
+    AtomicLongArray previous = window.previous;
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = current.get(i) + previous.get(i);
+      total += counts[i];
+    }
+    if (total < minSamples) {
+      return -1L;
+    }
+    long rank = (long) Math.ceil(Math.min(1d, Math.max(0d, quantile)) * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  private int bucket(long latencyMs) {
+    if (latencyMs <= 1) {
+      return 0;
+    }
+    int index =
+        (int) Math.ceil(STEPS_PER_DOUBLING * Math.log((double) latencyMs) / Math.log(2d));
+    return Math.min(BUCKETS - 1, Math.max(0, index));
+  }
+
+  private long upperBound(int bucket) {
+    return (long) Math.ceil(Math.pow(2d, (double) bucket / STEPS_PER_DOUBLING));
+  }
+}
@@ -0,0 +1,18 @@
+package com.neria.manager.adapters;
+
+// A provider answered with a non-2xx status. Keeps the status so callers can tell a client error
+// (bad payload, unknown model) from the provider being unhealthy.
+public class ProviderResponseException extends IllegalStateException {
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+
+  public ProviderResponseException(String message, int statusCode) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+}
@@ -0,0 +1,10 @@
+package com.neria.manager.adapters;
+
+// Raised without calling upstream while the provider's circuit is open.
+public class ProviderUnavailableException extends IllegalStateException {
+  private static final long serialVersionUID = 1L;
+
+  public ProviderUnavailableException(String message) {
+    super(message);
+  }
+}
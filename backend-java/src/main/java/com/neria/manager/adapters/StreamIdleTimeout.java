@@ -0,0 +1,75 @@
+package com.neria.manager.adapters;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Closes a streaming response body once nothing has arrived for the idle timeout. The request
+// timeout only covers the wait for the response headers, so a provider stalling mid-stream would
+// otherwise hold the call (and its blocking permit) for as long as the connection stays open.
+final class StreamIdleTimeout implements AutoCloseable {
+  private static final ScheduledExecutorService TIMER =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "provider-stream-idle");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final InputStream body;
+  private final long idleMs;
+  private final ScheduledFuture<?> check;
+  private volatile long lastActivity = System.nanoTime();
+  private volatile boolean expired;
+
+  StreamIdleTimeout(InputStream body, Duration idleTimeout) {
+    this.body = body;
+    this.idleMs = idleTimeout.toMillis();
+    long periodMs = Math.max(100L, idleMs / 4);
+    this.check = TIMER.scheduleAtFixedRate(this::check, periodMs, periodMs, TimeUnit.MILLISECONDS);
+  }
+
+  // Every line, keep-alive blank lines included, counts as activity.
+  Stream<String> lines() {
+    return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))
+        .lines()
+        .peek(line -> lastActivity = System.nanoTime());
+  }
+
+  // A read that failed because the body was closed here is reported as a timeout.
+  RuntimeException failure(String provider, UncheckedIOException ex) {
+    if (expired) {
+      return new IllegalStateException(
+          provider + " stream stalled",
+          new HttpTimeoutException("No stream data for " + idleMs + " ms"));
+    }
+    return new IllegalStateException(provider + " stream failed", ex);
+  }
+
+  @Override
+  public void close() {
+    check.cancel(false);
+  }
+
+  private void check() {
+    if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivity) < idleMs) {
+      return;
+    }
+    expired = true;
+    check.cancel(false);
+    try {
+      body.close();
+    } catch (Exception ex) {
+      // The reader sees the closed stream either way.
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.neria.manager.adapters;
+
+import java.util.List;
+import java.util.Map;
+
+// Rough token counts (about 4 characters per token) for when a provider does not report usage,
+// or before a call when only the request is known. Only message text is measured, so the
+// estimate costs a walk over the messages rather than a JSON encode of the payload.
+public final class TokenEstimates {
+  private static final int CHARS_PER_TOKEN = 4;
+  // Role and separator tokens the chat format adds around each message.
+  private static final int TOKENS_PER_MESSAGE = 4;
+  private static final List<String> MAX_OUTPUT_KEYS =
+      List.of("max_tokens", "max_completion_tokens", "max_output_tokens", "maxTokens");
+
+  private TokenEstimates() {}
+
+  public static long prompt(Map<String, Object> payload) {
+    if (payload == null) {
+      return 0L;
+    }
+    if (payload.get("messages") instanceof List<?> messages) {
+      long chars = 0;
+      for (Object message : messages) {
+        if (message instanceof Map<?, ?> entry) {
+          chars += textLength(entry.get("content"));
+        }
+      }
+      return chars / CHARS_PER_TOKEN + (long) TOKENS_PER_MESSAGE * messages.size();
+    }
+    long chars = textLength(payload.get("prompt")) + textLength(payload.get("input"));
+    return chars / CHARS_PER_TOKEN;
+  }
+
+  public static long completion(long chars) {
+    return chars / CHARS_PER_TOKEN;
+  }
+
+  // The output limit the caller asked for, or 0 when the request leaves it to the provider.
+  public static long maxOutput(Map<String, Object> payload) {
+    if (payload == null) {
+      return 0L;
+    }
+    for (String key : MAX_OUTPUT_KEYS) {
+      if (payload.get(key) instanceof Number value && value.longValue() > 0) {
+        return value.longValue();
+      }
+    }
+    return 0L;
+  }
+
+  // Content is either a string or a list of parts, of which only the text ones count.
+  private static long textLength(Object content) {
+    if (content instanceof String text) {
+      return text.length();
+    }
+    if (content instanceof List<?> parts) {
+      long chars = 0;
+      for (Object part : parts) {
+        if (part instanceof String text) {
+          chars += text.length();
+        } else if (part instanceof Map<?, ?> map && map.get("text") instanceof String text) {
+          chars += text.length();
+        }
+      }
+      return chars;
+    }
+    return 0L;
+  }
+}
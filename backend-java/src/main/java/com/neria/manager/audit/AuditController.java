@@ -1,8 +1,12 @@
 package com.neria.manager.audit;
 
+import com.neria.manager.common.entities.AuditEvent;
 import com.neria.manager.common.security.AuthContext;
+import com.neria.manager.common.services.EventCursor;
 import jakarta.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
 import java.util.List;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,10 +28,25 @@ public class AuditController {
       HttpServletRequest request,
       @RequestParam(value = "limit", required = false) Integer limit,
       @RequestParam(value = "tenantId", required = false) String tenantId) {
+    return page(request, tenantId, null, null, null, null, null, limit).items();
+  }
+
+  @GetMapping("/page")
+  public EventCursor.Page<AuditEvent> page(
+      HttpServletRequest request,
+      @RequestParam(value = "tenantId", required = false) String tenantId,
+      @RequestParam(value = "action", required = false) String action,
+      @RequestParam(value = "status", required = false) String status,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
     AuthContext auth = requireAuth(request);
     String resolvedTenant = "tenant".equals(auth.getRole()) ? auth.getTenantId() : tenantId;
     int parsed = limit == null ? 100 : Math.min(Math.max(limit, 1), 500);
-    return auditService.list(parsed, resolvedTenant);
+    return auditService.list(resolvedTenant, action, status, from, to, cursor, parsed);
   }
 
   private AuthContext requireAuth(HttpServletRequest request) {
@@ -2,17 +2,22 @@ package com.neria.manager.audit;
 
 import com.neria.manager.common.entities.AuditEvent;
 import com.neria.manager.common.repos.AuditEventRepository;
+import com.neria.manager.common.services.EventBatchWriter;
+import com.neria.manager.common.services.EventCursor;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuditService {
   private final AuditEventRepository auditRepository;
+  private final EventBatchWriter eventWriter;
 
-  public AuditService(AuditEventRepository auditRepository) {
+  public AuditService(AuditEventRepository auditRepository, EventBatchWriter eventWriter) {
     this.auditRepository = auditRepository;
+    this.eventWriter = eventWriter;
   }
 
   public AuditEvent record(AuditEvent event) {
@@ -25,14 +30,38 @@ public class AuditService {
     if (event.getMetadata() == null) {
       event.setMetadata("{}");
     }
-    return auditRepository.save(event);
+    eventWriter.write(event);
+    return event;
   }
 
-  public List<AuditEvent> list(int limit, String tenantId) {
+  public EventCursor.Page<AuditEvent> list(
+      String tenantId,
+      String action,
+      String status,
+      LocalDateTime from,
+      LocalDateTime to,
+      String cursor,
+      int limit) {
+    EventCursor position = EventCursor.decode(cursor);
     List<AuditEvent> events =
-        tenantId != null && !tenantId.isBlank()
-            ? auditRepository.findTop500ByTenantIdOrderByCreatedAtDesc(tenantId)
-            : auditRepository.findTop500ByOrderByCreatedAtDesc();
-    return events.subList(0, Math.min(limit, events.size()));
+        auditRepository.search(
+            blankToNull(tenantId),
+            blankToNull(action),
+            blankToNull(status),
+            from,
+            to,
+            position != null ? position.createdAt() : null,
+            position != null ? position.id() : null,
+            PageRequest.of(0, limit + 1));
+    if (events.size() <= limit) {
+      return new EventCursor.Page<>(events, null);
+    }
+    List<AuditEvent> page = events.subList(0, limit);
+    AuditEvent last = page.get(page.size() - 1);
+    return new EventCursor.Page<>(page, new EventCursor(last.getCreatedAt(), last.getId()).encode());
+  }
+
+  private String blankToNull(String value) {
+    return value == null || value.isBlank() ? null : value;
   }
 }
@@ -2,6 +2,7 @@ package com.neria.manager.auth;
 
 import com.neria.manager.common.entities.ApiKey;
 import com.neria.manager.common.repos.ApiKeyRepository;
+import com.neria.manager.common.services.ApiKeyCache;
 import com.neria.manager.common.services.ScryptHasher;
 import com.neria.manager.config.AppProperties;
 import java.security.SecureRandom;
@@ -16,12 +17,17 @@ import org.springframework.stereotype.Service;
 public class ApiKeysService {
   private final ApiKeyRepository apiKeyRepository;
   private final ScryptHasher hasher;
+  private final ApiKeyCache apiKeyCache;
   private final String salt;
 
   public ApiKeysService(
-      ApiKeyRepository apiKeyRepository, ScryptHasher hasher, AppProperties properties) {
+      ApiKeyRepository apiKeyRepository,
+      ScryptHasher hasher,
+      ApiKeyCache apiKeyCache,
+      AppProperties properties) {
     this.apiKeyRepository = apiKeyRepository;
     this.hasher = hasher;
+    this.apiKeyCache = apiKeyCache;
     this.salt = Optional.ofNullable(properties.getSecurity().getApiKeySalt()).orElse("");
     if (this.salt.length() < 16) {
       throw new IllegalStateException("API_KEY_SALT must be at least 16 characters");
@@ -54,7 +60,9 @@ public class ApiKeysService {
       return null;
     }
     record.setStatus("revoked");
-    return apiKeyRepository.save(record);
+    ApiKey saved = apiKeyRepository.save(record);
+    apiKeyCache.invalidateApiKey(id);
+    return saved;
   }
 
   public ApiKeyCreateResult rotate(String id) {
@@ -66,11 +74,19 @@ public class ApiKeysService {
     record.setHashedKey(hasher.hash(plainKey, salt));
     record.setStatus("active");
     apiKeyRepository.save(record);
+    apiKeyCache.invalidateApiKey(id);
     return new ApiKeyCreateResult(record.getId(), record.getName(), record.getTenantId(), plainKey);
   }
 
   public ApiKey validate(String apiKey) {
-    String hashed = hasher.hash(apiKey, salt);
+    return findActiveByHash(hashKey(apiKey));
+  }
+
+  public String hashKey(String apiKey) {
+    return hasher.hash(apiKey, salt);
+  }
+
+  public ApiKey findActiveByHash(String hashed) {
     return apiKeyRepository.findByHashedKeyAndStatus(hashed, "active").orElse(null);
   }
 
@@ -2,6 +2,7 @@ package com.neria.manager.auth;
 
 import com.neria.manager.common.entities.ApiKey;
 import com.neria.manager.common.security.AuthContext;
+import com.neria.manager.common.services.ApiKeyCache;
 import com.neria.manager.common.services.JwtService;
 import com.neria.manager.config.AppProperties;
 import io.jsonwebtoken.Claims;
@@ -14,16 +15,19 @@ public class AuthService {
   private final JwtService jwtService;
   private final ApiKeysService apiKeysService;
   private final TenantServiceApiKeysService tenantServiceApiKeysService;
+  private final ApiKeyCache apiKeyCache;
   private final AppProperties properties;
 
   public AuthService(
       JwtService jwtService,
       ApiKeysService apiKeysService,
       TenantServiceApiKeysService tenantServiceApiKeysService,
+      ApiKeyCache apiKeyCache,
       AppProperties properties) {
     this.jwtService = jwtService;
     this.apiKeysService = apiKeysService;
     this.tenantServiceApiKeysService = tenantServiceApiKeysService;
+    this.apiKeyCache = apiKeyCache;
     this.properties = properties;
   }
 
@@ -64,7 +68,19 @@ public class AuthService {
   }
 
   public AuthContext validateApiKey(String apiKey) {
-    var serviceKey = tenantServiceApiKeysService.validate(apiKey);
+    AuthContext cached = apiKeyCache.get(apiKey);
+    if (cached != null) {
+      return cached;
+    }
+    AuthContext context = resolveApiKey(apiKey);
+    apiKeyCache.put(apiKey, context);
+    return context;
+  }
+
+  private AuthContext resolveApiKey(String apiKey) {
+    // Both key tables are hashed with API_KEY_SALT, so one derivation serves both lookups.
+    String hashed = apiKeysService.hashKey(apiKey);
+    var serviceKey = tenantServiceApiKeysService.findActiveByHash(hashed);
     if (serviceKey != null) {
       return AuthContext.builder()
           .type("serviceApiKey")
@@ -73,7 +89,7 @@ public class AuthService {
           .serviceCode(serviceKey.getServiceCode())
           .build();
     }
-    ApiKey record = apiKeysService.validate(apiKey);
+    ApiKey record = apiKeysService.findActiveByHash(hashed);
     if (record == null) {
       throw new IllegalArgumentException("Invalid API key");
     }
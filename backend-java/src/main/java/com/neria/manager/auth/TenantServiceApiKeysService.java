@@ -2,6 +2,7 @@ package com.neria.manager.auth;
 
 import com.neria.manager.common.entities.TenantServiceApiKey;
 import com.neria.manager.common.repos.TenantServiceApiKeyRepository;
+import com.neria.manager.common.services.ApiKeyCache;
 import com.neria.manager.common.services.EncryptionService;
 import com.neria.manager.common.services.ScryptHasher;
 import com.neria.manager.config.AppProperties;
@@ -20,16 +21,19 @@ public class TenantServiceApiKeysService {
   private final TenantServiceApiKeyRepository repository;
   private final ScryptHasher hasher;
   private final EncryptionService encryptionService;
+  private final ApiKeyCache apiKeyCache;
   private final String salt;
 
   public TenantServiceApiKeysService(
       TenantServiceApiKeyRepository repository,
       ScryptHasher hasher,
       EncryptionService encryptionService,
+      ApiKeyCache apiKeyCache,
       AppProperties properties) {
     this.repository = repository;
     this.hasher = hasher;
     this.encryptionService = encryptionService;
+    this.apiKeyCache = apiKeyCache;
     this.salt =
         Optional.ofNullable(properties.getSecurity().getApiKeySalt()).orElse("");
     if (this.salt.length() < 16) {
@@ -69,7 +73,10 @@ public class TenantServiceApiKeysService {
   }
 
   public TenantServiceApiKey validate(String apiKey) {
-    String hashed = hasher.hash(apiKey, salt);
+    return findActiveByHash(hasher.hash(apiKey, salt));
+  }
+
+  public TenantServiceApiKey findActiveByHash(String hashed) {
     return repository.findByHashedKeyAndStatus(hashed, "active").orElse(null);
   }
 
@@ -94,6 +101,7 @@ public class TenantServiceApiKeysService {
       return;
     }
     repository.deleteByTenantIdAndServiceCode(tenantId, serviceCode);
+    apiKeyCache.invalidateService(tenantId, serviceCode);
   }
 
   private String generateKey() {
@@ -2,13 +2,11 @@ package com.neria.manager.chat;
 
 import com.neria.manager.common.security.AuthContext;
 import com.neria.manager.common.security.AuthUtils;
+import com.neria.manager.common.services.BlockingTaskExecutor;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -25,11 +23,15 @@ import org.springframework.web.server.ResponseStatusException;
 public class ChatController {
   private final ChatService chatService;
   private final ChatAuthService chatAuthService;
-  private final ExecutorService streamExecutor = Executors.newCachedThreadPool();
+  private final BlockingTaskExecutor streamExecutor;
 
-  public ChatController(ChatService chatService, ChatAuthService chatAuthService) {
+  public ChatController(
+      ChatService chatService,
+      ChatAuthService chatAuthService,
+      BlockingTaskExecutor streamExecutor) {
     this.chatService = chatService;
     this.chatAuthService = chatAuthService;
+    this.streamExecutor = streamExecutor;
   }
 
   private Claims requireChatToken(HttpServletRequest request, String tenantId) {
@@ -133,23 +135,34 @@ public class ChatController {
     SseEmitter emitter = new SseEmitter(0L);
     streamExecutor.execute(
         () -> {
+          AtomicBoolean clientGone = new AtomicBoolean(false);
           try {
             ChatService.AddMessageResult result =
-                chatService.addMessageForStreaming(tenantId, userId, apiKeyId, id, dto);
-            String content =
-                result.message != null && result.message.getContent() != null
-                    ? result.message.getContent()
-                    : "";
-            List<String> chunks = splitChunks(content);
-            for (String chunk : chunks) {
-              emitter.send(
-                  SseEmitter.event()
-                      .name("delta")
-                      .data(
-                          Map.of(
-                              "delta", chunk,
-                              "conversationId", result.conversationId)));
-              Thread.sleep(15);
+                chatService.addMessageForStreaming(
+                    tenantId,
+                    userId,
+                    apiKeyId,
+                    id,
+                    dto,
+                    delta -> {
+                      if (clientGone.get()) {
+                        return;
+                      }
+                      try {
+                        emitter.send(
+                            SseEmitter.event()
+                                .name("delta")
+                                .data(Map.of("delta", delta, "conversationId", id)));
+                      } catch (Exception ex) {
+                        // Keep consuming the provider stream so the reply and usage are stored.
+                        clientGone.set(true);
+                      }
+                    });
+            if (clientGone.get()) {
+              // Nothing more can be sent, but completing releases the emitter and its async
+              // request, which would otherwise never time out.
+              emitter.complete();
+              return;
             }
             emitter.send(
                 SseEmitter.event()
@@ -162,16 +175,4 @@ public class ChatController {
         });
     return emitter;
   }
-
-  private List<String> splitChunks(String content) {
-    List<String> chunks = new ArrayList<>();
-    if (content == null || content.isBlank()) {
-      return chunks;
-    }
-    int size = 24;
-    for (int i = 0; i < content.length(); i += size) {
-      chunks.add(content.substring(i, Math.min(content.length(), i + size)));
-    }
-    return chunks;
-  }
 }
@@ -7,13 +7,16 @@ import com.neria.manager.common.entities.TenantServiceConfig;
 import com.neria.manager.common.repos.ChatConversationRepository;
 import com.neria.manager.common.repos.ChatMessageRepository;
 import com.neria.manager.common.repos.ChatUserRepository;
+import com.neria.manager.common.services.BlockingTaskExecutor;
 import com.neria.manager.runtime.ExecuteRequest;
 import com.neria.manager.runtime.RuntimeService;
+import com.neria.manager.tenantservices.TenantServiceEndpointCache;
 import com.neria.manager.tenantservices.TenantServicesService;
 import com.neria.manager.tenantservices.TenantServicesService.TenantServiceEndpointResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -26,6 +29,12 @@ import java.util.Locale;
 import java.util.UUID;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +45,7 @@ import org.springframework.web.server.ResponseStatusException;
 @Service
 public class ChatService {
   private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+  private static final long ENDPOINT_REQUEST_TIMEOUT_MS = 15_000L;
   private final ChatConversationRepository conversationsRepository;
   private final ChatMessageRepository messagesRepository;
   private final ChatUserRepository usersRepository;
@@ -44,6 +54,10 @@ public class ChatService {
   private final TenantServicesService tenantServicesService;
   private final ObjectMapper objectMapper;
   private final HttpClient httpClient;
+  private final BlockingTaskExecutor taskExecutor;
+  private final TenantServiceEndpointCache endpointCache;
+  private final long endpointDeadlineMs;
+  private final int pageConcurrency;
 
   public ChatService(
       ChatConversationRepository conversationsRepository,
@@ -52,7 +66,9 @@ public class ChatService {
       RuntimeService runtimeService,
       ChatAuthService chatAuthService,
       TenantServicesService tenantServicesService,
-      ObjectMapper objectMapper) {
+      ObjectMapper objectMapper,
+      BlockingTaskExecutor taskExecutor,
+      TenantServiceEndpointCache endpointCache) {
     this.conversationsRepository = conversationsRepository;
     this.messagesRepository = messagesRepository;
     this.usersRepository = usersRepository;
@@ -61,6 +77,12 @@ public class ChatService {
     this.tenantServicesService = tenantServicesService;
     this.objectMapper = objectMapper;
     this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    this.taskExecutor = taskExecutor;
+    this.endpointCache = endpointCache;
+    this.endpointDeadlineMs =
+        Long.parseLong(System.getenv().getOrDefault("CHAT_ENDPOINT_DEADLINE_MS", "20000"));
+    this.pageConcurrency =
+        Math.max(1, Integer.parseInt(System.getenv().getOrDefault("CHAT_ENDPOINT_PAGE_CONCURRENCY", "8")));
   }
 
   public List<ChatConversation> listConversations(String tenantId, String userId) {
@@ -140,7 +162,8 @@ public class ChatService {
       String userId,
       String apiKeyId,
       String conversationId,
-      CreateMessageRequest dto) {
+      CreateMessageRequest dto,
+      Consumer<String> onDelta) {
     ChatConversation conversation = getConversation(tenantId, conversationId);
     if (!conversation.getUserId().equals(userId)) {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Conversation does not belong to user");
@@ -227,6 +250,9 @@ public class ChatService {
       assistantMessage.setTokensOut(0);
       assistantMessage.setCreatedAt(LocalDateTime.now());
       messagesRepository.save(assistantMessage);
+      if (onDelta != null) {
+        onDelta.accept(refusal);
+      }
 
       conversation.setUpdatedAt(LocalDateTime.now());
       if (conversation.getApiKeyId() == null && apiKeyId != null) {
@@ -269,6 +295,9 @@ public class ChatService {
       assistantMessage.setTokensOut(0);
       assistantMessage.setCreatedAt(LocalDateTime.now());
       messagesRepository.save(assistantMessage);
+      if (onDelta != null) {
+        onDelta.accept(refusal);
+      }
 
       conversation.setUpdatedAt(LocalDateTime.now());
       if (conversation.getApiKeyId() == null && apiKeyId != null) {
@@ -311,7 +340,10 @@ public class ChatService {
     runtimeRequest.model = conversation.getModel();
     runtimeRequest.payload = Map.of("messages", payloadMessages);
     runtimeRequest.serviceCode = conversation.getServiceCode();
-    var runtimeResponse = runtimeService.execute(tenantId, runtimeRequest);
+    var runtimeResponse =
+        onDelta != null
+            ? runtimeService.executeStream(tenantId, runtimeRequest, onDelta)
+            : runtimeService.execute(tenantId, runtimeRequest);
 
     Object output = runtimeResponse.get("output");
     String assistantContent = extractAssistantContent(output);
@@ -349,7 +381,8 @@ public class ChatService {
       String apiKeyId,
       String conversationId,
       CreateMessageRequest dto) {
-    AddMessageResult result = addMessageInternal(tenantId, userId, apiKeyId, conversationId, dto);
+    AddMessageResult result =
+        addMessageInternal(tenantId, userId, apiKeyId, conversationId, dto, null);
     return Map.of(
         "conversationId", result.conversationId,
         "message", result.message,
@@ -361,8 +394,9 @@ public class ChatService {
       String userId,
       String apiKeyId,
       String conversationId,
-      CreateMessageRequest dto) {
-    return addMessageInternal(tenantId, userId, apiKeyId, conversationId, dto);
+      CreateMessageRequest dto,
+      Consumer<String> onDelta) {
+    return addMessageInternal(tenantId, userId, apiKeyId, conversationId, dto, onDelta);
   }
 
   public List<ChatConversation> adminListConversations(String tenantId) {
@@ -617,6 +651,8 @@ public class ChatService {
     boolean anyMatches = false;
     java.util.Set<Integer> availableYears = new java.util.TreeSet<>();
 
+    long deadline = System.currentTimeMillis() + endpointDeadlineMs;
+    List<PendingEndpoint> pending = new ArrayList<>();
     for (TenantServiceEndpointResponse endpoint : orderedEndpoints) {
       if (endpoint == null) {
         continue;
@@ -650,7 +686,20 @@ public class ChatService {
         String normalizedPath = path.startsWith("/") ? path : "/" + path;
         url = base + normalizedPath;
       }
-      EndpointFetch fetch = fetchEndpoint(url, endpoint.headers);
+      String resolvedUrl = url;
+      pending.add(
+          new PendingEndpoint(
+              endpoint,
+              resolvedUrl,
+              taskExecutor.supplyAsync(
+                  () -> loadEndpoint(endpoint, resolvedUrl, year, keywords, deadline))));
+    }
+
+    // Fetches run concurrently; results are merged in priority order.
+    for (PendingEndpoint entry : pending) {
+      TenantServiceEndpointResponse endpoint = entry.endpoint;
+      String url = entry.url;
+      EndpointFetch fetch = awaitFetch(entry, deadline);
       if (!fetch.ok) {
         log.info(
             "Endpoint fetch failed slug={} url={} responsePath={} status={} error={}",
@@ -663,13 +712,6 @@ public class ChatService {
       }
       anyData = true;
       Object data = fetch.data;
-      log.info(
-          "Endpoint fetch ok slug={} url={} responsePath={} total={}",
-          endpoint.slug,
-          url,
-          endpoint.responsePath,
-          countItems(data, endpoint.responsePath));
-      data = maybeLoadMorePages(url, endpoint.headers, data, endpoint.responsePath, year, keywords);
       if (year != null) {
         List<Object> items = extractItems(data, endpoint.responsePath);
         for (Object item : items) {
@@ -733,32 +775,109 @@ public class ChatService {
     return context;
   }
 
-  private EndpointFetch fetchEndpoint(String url, Map<String, String> headers) {
+  private EndpointFetch loadEndpoint(
+      TenantServiceEndpointResponse endpoint,
+      String url,
+      Integer year,
+      List<String> keywords,
+      long deadline) {
+    EndpointFetch fetch = fetchEndpoint(endpoint, url, deadline);
+    if (!fetch.ok) {
+      return fetch;
+    }
+    log.info(
+        "Endpoint fetch ok slug={} url={} responsePath={} total={}",
+        endpoint.slug,
+        url,
+        endpoint.responsePath,
+        countItems(fetch.data, endpoint.responsePath));
+    fetch.data =
+        maybeLoadMorePages(
+            endpoint, url, fetch.data, endpoint.responsePath, year, keywords, deadline);
+    return fetch;
+  }
+
+  private EndpointFetch awaitFetch(PendingEndpoint item, long deadline) {
+    long remaining = deadline - System.currentTimeMillis();
+    try {
+      return item.future.get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      item.future.cancel(true);
+      EndpointFetch timedOut = new EndpointFetch();
+      timedOut.error = "DeadlineExceeded";
+      return timedOut;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      EndpointFetch interrupted = new EndpointFetch();
+      interrupted.error = ex.getClass().getSimpleName();
+      return interrupted;
+    } catch (ExecutionException ex) {
+      EndpointFetch failed = new EndpointFetch();
+      failed.error =
+          ex.getCause() != null ? ex.getCause().getClass().getSimpleName() : "ExecutionException";
+      return failed;
+    }
+  }
+
+  private EndpointFetch fetchEndpoint(
+      TenantServiceEndpointResponse endpoint, String url, long deadline) {
     EndpointFetch result = new EndpointFetch();
+    TenantServiceEndpointCache.Entry cached =
+        endpointCache.get(endpoint.tenantId, endpoint.id, url, endpoint.headers);
+    if (cached != null && cached.isFresh()) {
+      return parseEndpointBody(result, cached.getBody(), 200);
+    }
+    long remaining = deadline - System.currentTimeMillis();
+    if (remaining <= 0) {
+      result.error = "DeadlineExceeded";
+      return result;
+    }
     try {
       HttpRequest.Builder builder =
           HttpRequest.newBuilder()
               .uri(URI.create(url))
-              .timeout(Duration.ofSeconds(15))
+              .timeout(Duration.ofMillis(Math.min(remaining, ENDPOINT_REQUEST_TIMEOUT_MS)))
               .GET();
-      if (headers != null) {
-        headers.forEach(builder::header);
+      if (endpoint.headers != null) {
+        endpoint.headers.forEach(builder::header);
+      }
+      if (cached != null && cached.getEtag() != null) {
+        builder.header("If-None-Match", cached.getEtag());
+      }
+      if (cached != null && cached.getLastModified() != null) {
+        builder.header("If-Modified-Since", cached.getLastModified());
       }
       HttpResponse<String> response =
           httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+      HttpHeaders responseHeaders = response.headers();
+      String body;
+      if (response.statusCode() == 304 && cached != null) {
+        body = cached.getBody();
+      } else if (response.statusCode() < 200 || response.statusCode() >= 300) {
         result.status = response.statusCode();
         result.error = "HTTP " + response.statusCode();
         return result;
+      } else {
+        body = response.body();
       }
-      String body = response.body();
       if (body == null || body.isBlank()) {
         return result;
       }
-      Object parsed = objectMapper.readValue(body, Object.class);
-      result.ok = true;
-      result.data = parsed;
-      result.status = response.statusCode();
+      parseEndpointBody(result, body, response.statusCode());
+      if (result.ok) {
+        endpointCache.put(
+            endpoint.tenantId,
+            endpoint.id,
+            endpoint.cacheTtlSeconds,
+            url,
+            endpoint.headers,
+            body,
+            responseHeaders.firstValue("ETag").orElse(cached != null ? cached.getEtag() : null),
+            responseHeaders
+                .firstValue("Last-Modified")
+                .orElse(cached != null ? cached.getLastModified() : null),
+            responseHeaders.firstValue("Cache-Control").orElse(null));
+      }
     } catch (Exception ex) {
       result.error = ex.getClass().getSimpleName();
       return result;
@@ -766,6 +885,17 @@ public class ChatService {
     return result;
   }
 
+  private EndpointFetch parseEndpointBody(EndpointFetch result, String body, int status) {
+    try {
+      result.data = objectMapper.readValue(body, Object.class);
+      result.ok = true;
+      result.status = status;
+    } catch (Exception ex) {
+      result.error = ex.getClass().getSimpleName();
+    }
+    return result;
+  }
+
   private List<TenantServiceEndpointResponse> prioritizeEndpoints(
       List<TenantServiceEndpointResponse> endpoints, List<String> keywords) {
     if (endpoints == null || endpoints.isEmpty() || keywords == null || keywords.isEmpty()) {
@@ -809,12 +939,13 @@ public class ChatService {
   }
 
   private Object maybeLoadMorePages(
+      TenantServiceEndpointResponse endpoint,
       String baseUrl,
-      Map<String, String> headers,
       Object data,
       String responsePath,
       Integer year,
-      List<String> keywords) {
+      List<String> keywords,
+      long deadline) {
     if (!(data instanceof Map<?, ?> map)) {
       return data;
     }
@@ -852,25 +983,41 @@ public class ChatService {
         total > 0
             ? (int) Math.ceil((double) targetTotal / (double) pageSize)
             : (int) Math.ceil((double) maxRecords / (double) pageSize);
+    // Remaining pages are fetched in bounded parallel waves and appended in page order; the
+    // first failed or empty page ends the walk, as the sequential loop did. Fetches of the wave
+    // that have not started by then are skipped rather than sent.
     int currentPage = pageNumber;
-    while (currentPage < maxPages && aggregated.size() < maxRecords) {
-      currentPage += 1;
-      String pagedUrl = withPageParams(baseUrl, currentPage, pageSize);
-      EndpointFetch next = fetchEndpoint(pagedUrl, headers);
-      if (!next.ok || !(next.data instanceof Map<?, ?> nextMap)) {
-        break;
-      }
-      Object listObj = extractByPath(nextMap, responsePath);
-      if (!(listObj instanceof List<?>)) {
-        listObj = nextMap.get("list");
-      }
-      if (!(listObj instanceof List<?> nextList) || nextList.isEmpty()) {
-        break;
+    int size = pageSize;
+    AtomicBoolean exhausted = new AtomicBoolean(false);
+    while (!exhausted.get() && currentPage < maxPages && aggregated.size() < maxRecords) {
+      int waveEnd = Math.min(maxPages, currentPage + pageConcurrency);
+      List<CompletableFuture<EndpointFetch>> wave = new ArrayList<>();
+      for (int page = currentPage + 1; page <= waveEnd; page++) {
+        String pagedUrl = withPageParams(baseUrl, page, size);
+        wave.add(
+            taskExecutor.supplyAsync(
+                () -> exhausted.get() ? null : fetchEndpoint(endpoint, pagedUrl, deadline)));
       }
-      aggregated.addAll(nextList);
-      if (aggregated.size() >= maxRecords) {
-        aggregated = aggregated.subList(0, maxRecords);
-        break;
+      currentPage = waveEnd;
+      for (CompletableFuture<EndpointFetch> future : wave) {
+        EndpointFetch next = exhausted.get() ? null : future.join();
+        if (next == null || !next.ok || !(next.data instanceof Map<?, ?> nextMap)) {
+          exhausted.set(true);
+          continue;
+        }
+        Object listObj = extractByPath(nextMap, responsePath);
+        if (!(listObj instanceof List<?>)) {
+          listObj = nextMap.get("list");
+        }
+        if (!(listObj instanceof List<?> nextList) || nextList.isEmpty()) {
+          exhausted.set(true);
+          continue;
+        }
+        aggregated.addAll(nextList);
+        if (aggregated.size() >= maxRecords) {
+          aggregated = aggregated.subList(0, maxRecords);
+          exhausted.set(true);
+        }
       }
     }
 
@@ -1156,6 +1303,21 @@ public class ChatService {
     return current;
   }
 
+  private static class PendingEndpoint {
+    final TenantServiceEndpointResponse endpoint;
+    final String url;
+    final CompletableFuture<EndpointFetch> future;
+
+    private PendingEndpoint(
+        TenantServiceEndpointResponse endpoint,
+        String url,
+        CompletableFuture<EndpointFetch> future) {
+      this.endpoint = endpoint;
+      this.url = url;
+      this.future = future;
+    }
+  }
+
   private static class EndpointFetch {
     boolean ok = false;
     Object data = null;
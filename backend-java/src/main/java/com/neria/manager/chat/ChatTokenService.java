@@ -1,6 +1,8 @@
 package com.neria.manager.chat;
 
+import com.neria.manager.common.services.VerifiedTokenCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -14,6 +16,8 @@ import org.springframework.stereotype.Service;
 @Service
 public class ChatTokenService {
   private final Key key;
+  private final JwtParser parser;
+  private final VerifiedTokenCache verifiedTokens;
   private final long ttlSeconds;
 
   public ChatTokenService() {
@@ -22,6 +26,11 @@ public class ChatTokenService {
       throw new IllegalArgumentException("CHAT_JWT_SECRET must be at least 32 characters");
     }
     this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    this.verifiedTokens =
+        new VerifiedTokenCache(
+            Long.parseLong(System.getenv().getOrDefault("JWT_VERIFY_CACHE_TTL", "60")),
+            Integer.parseInt(System.getenv().getOrDefault("JWT_VERIFY_CACHE_MAX_ENTRIES", "10000")));
     this.ttlSeconds = Long.parseLong(System.getenv().getOrDefault("CHAT_JWT_TTL", "7200"));
   }
 
@@ -36,7 +45,13 @@ public class ChatTokenService {
   }
 
   public Claims verify(String token) {
-    return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    Claims cached = verifiedTokens.get(token);
+    if (cached != null) {
+      return cached;
+    }
+    Claims claims = parser.parseClaimsJws(token).getBody();
+    verifiedTokens.put(token, claims);
+    return claims;
   }
 
   public long getTtlSeconds() {
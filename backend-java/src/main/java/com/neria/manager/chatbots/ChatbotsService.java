@@ -34,7 +34,7 @@ public class ChatbotsService {
     request.providerId = dto.providerId;
     request.model = dto.model;
     request.requestId = dto.requestId;
-    request.payload = Map.of("messages", dto.messages);
+    request.payload = answerPayload(dto.messages);
     return runtimeService.execute(tenantId, request);
   }
 
@@ -59,7 +59,7 @@ public class ChatbotsService {
     request.providerId = dto.providerId;
     request.model = dto.model;
     request.requestId = dto.requestId;
-    request.payload = Map.of("messages", messages);
+    request.payload = answerPayload(messages);
     return runtimeService.execute(tenantId, request);
   }
 
@@ -87,7 +87,7 @@ public class ChatbotsService {
       request.providerId = dto.providerId;
       request.model = dto.model;
       request.requestId = dto.requestId;
-      request.payload = Map.of("messages", prompt);
+      request.payload = answerPayload(prompt);
       Object response = runtimeService.execute(tenantId, request);
       sql = extractSql(response);
     }
@@ -101,6 +101,12 @@ public class ChatbotsService {
     return Map.of("requestId", dto.requestId, "sql", sql, "rows", rows);
   }
 
+  // Answers come from the given messages, document or schema, so they run at temperature 0: the
+  // output is stable and the policy's response cache can reuse it.
+  private Map<String, Object> answerPayload(List<Map<String, String>> messages) {
+    return Map.of("messages", messages, "temperature", 0);
+  }
+
   private String extractSql(Object response) {
     if (!(response instanceof Map)) {
       return null;
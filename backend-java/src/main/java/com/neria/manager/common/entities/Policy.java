@@ -24,6 +24,9 @@ public class Policy {
   @Column(name = "maxRequestsPerMinute", nullable = false)
   private int maxRequestsPerMinute;
 
+  @Column(name = "maxTokensPerMinute", nullable = false)
+  private int maxTokensPerMinute;
+
   @Column(name = "maxTokensPerDay", nullable = false)
   private int maxTokensPerDay;
 
@@ -33,6 +36,12 @@ public class Policy {
   @Column(name = "redactionEnabled", nullable = false)
   private boolean redactionEnabled;
 
+  @Column(name = "responseCacheTtlSeconds", nullable = false)
+  private int responseCacheTtlSeconds;
+
+  @Column(name = "responseCacheMaxBytes", nullable = false)
+  private long responseCacheMaxBytes;
+
   @Column(name = "metadata", columnDefinition = "json", nullable = false)
   private String metadata;
 
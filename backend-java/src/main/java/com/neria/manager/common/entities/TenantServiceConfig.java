@@ -35,6 +35,12 @@ public class TenantServiceConfig {
   @Column(name = "providerId", length = 36)
   private String providerId;
 
+  @Column(name = "failoverProviderId", length = 36)
+  private String failoverProviderId;
+
+  @Column(name = "hedgingEnabled", nullable = false)
+  private boolean hedgingEnabled;
+
   @Column(name = "pricingId", length = 36)
   private String pricingId;
 
@@ -41,6 +41,9 @@ public class TenantServiceEndpoint {
   @Column(length = 255)
   private String responsePath;
 
+  @Column(name = "cacheTtlSeconds")
+  private Integer cacheTtlSeconds;
+
   @Column(nullable = false)
   private boolean enabled;
 
@@ -39,6 +39,10 @@ public class UsageEvent {
   @Column(name = "costUsd", precision = 10, scale = 6, nullable = false)
   private BigDecimal costUsd;
 
+  // Extra attempt fired by request hedging, billed on top of the request that served the call.
+  @Column(nullable = false)
+  private boolean hedge;
+
   @Column(name = "createdAt")
   private LocalDateTime createdAt;
 }
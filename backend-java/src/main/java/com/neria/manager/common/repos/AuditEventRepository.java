@@ -1,10 +1,31 @@
 package com.neria.manager.common.repos;
 
 import com.neria.manager.common.entities.AuditEvent;
+import java.time.LocalDateTime;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AuditEventRepository extends JpaRepository<AuditEvent, String> {
-  List<AuditEvent> findTop500ByOrderByCreatedAtDesc();
-  List<AuditEvent> findTop500ByTenantIdOrderByCreatedAtDesc(String tenantId);
+  @Query(
+      "select e from AuditEvent e "
+          + "where (:tenantId is null or e.tenantId = :tenantId) "
+          + "and (:action is null or e.action = :action) "
+          + "and (:status is null or e.status = :status) "
+          + "and (:from is null or e.createdAt >= :from) "
+          + "and (:to is null or e.createdAt < :to) "
+          + "and (:cursorAt is null or e.createdAt < :cursorAt "
+          + "or (e.createdAt = :cursorAt and e.id < :cursorId)) "
+          + "order by e.createdAt desc, e.id desc")
+  List<AuditEvent> search(
+      @Param("tenantId") String tenantId,
+      @Param("action") String action,
+      @Param("status") String status,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to,
+      @Param("cursorAt") LocalDateTime cursorAt,
+      @Param("cursorId") String cursorId,
+      Pageable pageable);
 }
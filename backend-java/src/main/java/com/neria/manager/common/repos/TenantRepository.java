@@ -1,9 +1,14 @@
 package com.neria.manager.common.repos;
 
 import com.neria.manager.common.entities.Tenant;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface TenantRepository extends JpaRepository<Tenant, String> {
   Optional<Tenant> findByAuthUsername(String authUsername);
+
+  @Query("select t.id from Tenant t where t.killSwitch = true")
+  List<String> findKillSwitchTenantIds();
 }
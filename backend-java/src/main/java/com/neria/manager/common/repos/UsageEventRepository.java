@@ -1,10 +1,54 @@
 package com.neria.manager.common.repos;
 
 import com.neria.manager.common.entities.UsageEvent;
+import java.time.LocalDateTime;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UsageEventRepository extends JpaRepository<UsageEvent, String> {
-  List<UsageEvent> findTop200ByOrderByCreatedAtDesc();
-  List<UsageEvent> findTop200ByTenantIdOrderByCreatedAtDesc(String tenantId);
+  @Query(
+      "select e from UsageEvent e "
+          + "where (:tenantId is null or e.tenantId = :tenantId) "
+          + "and (:providerId is null or e.providerId = :providerId) "
+          + "and (:model is null or e.model = :model) "
+          + "and (:serviceCode is null or e.serviceCode = :serviceCode) "
+          + "and (:from is null or e.createdAt >= :from) "
+          + "and (:to is null or e.createdAt < :to) "
+          + "and (:cursorAt is null or e.createdAt < :cursorAt "
+          + "or (e.createdAt = :cursorAt and e.id < :cursorId)) "
+          + "order by e.createdAt desc, e.id desc")
+  List<UsageEvent> search(
+      @Param("tenantId") String tenantId,
+      @Param("providerId") String providerId,
+      @Param("model") String model,
+      @Param("serviceCode") String serviceCode,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to,
+      @Param("cursorAt") LocalDateTime cursorAt,
+      @Param("cursorId") String cursorId,
+      Pageable pageable);
+
+  @Query(
+      "select e.tenantId as tenantId, "
+          + "coalesce(sum(e.tokensIn + e.tokensOut), 0) as tokens, "
+          + "coalesce(sum(e.costUsd), 0) as costUsd "
+          + "from UsageEvent e "
+          + "where e.createdAt >= :start and e.createdAt < :end "
+          + "and (:tenantId is null or e.tenantId = :tenantId) "
+          + "group by e.tenantId")
+  List<TenantUsageTotals> sumByTenant(
+      @Param("tenantId") String tenantId,
+      @Param("start") LocalDateTime start,
+      @Param("end") LocalDateTime end);
+
+  interface TenantUsageTotals {
+    String getTenantId();
+
+    Number getTokens();
+
+    Number getCostUsd();
+  }
 }
@@ -70,8 +70,7 @@ public class AuthFilter extends OncePerRequestFilter {
         // Fall through to try cookie/api key.
       }
       if (context != null) {
-        request.setAttribute("auth", context);
-        filterChain.doFilter(request, response);
+        proceed(context, path, request, response, filterChain);
         return;
       }
     }
@@ -94,8 +93,7 @@ public class AuthFilter extends OncePerRequestFilter {
         // Fall through to try api key.
       }
       if (context != null) {
-        request.setAttribute("auth", context);
-        filterChain.doFilter(request, response);
+        proceed(context, path, request, response, filterChain);
         return;
       }
     }
@@ -118,8 +116,7 @@ public class AuthFilter extends OncePerRequestFilter {
         // Will return unauthorized below.
       }
       if (context != null) {
-        request.setAttribute("auth", context);
-        filterChain.doFilter(request, response);
+        proceed(context, path, request, response, filterChain);
         return;
       }
     }
@@ -160,6 +157,28 @@ public class AuthFilter extends OncePerRequestFilter {
                 + "}");
   }
 
+  // Actuator endpoints beyond health and info (metrics, providers) describe every tenant's
+  // providers, so only platform admins may read them.
+  private void proceed(
+      AuthContext context,
+      String path,
+      HttpServletRequest request,
+      HttpServletResponse response,
+      FilterChain filterChain)
+      throws ServletException, IOException {
+    if (path.startsWith("/actuator") && !"admin".equals(context.getRole())) {
+      log.warn("Non-admin access to {} denied (type={})", path, context.getType());
+      response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+      response.setContentType("application/json");
+      response
+          .getWriter()
+          .write("{\"message\":\"Admin role required\",\"error\":\"Forbidden\"}");
+      return;
+    }
+    request.setAttribute("auth", context);
+    filterChain.doFilter(request, response);
+  }
+
   private String extractCookie(HttpServletRequest request, String name) {
     Cookie[] cookies = request.getCookies();
     if (cookies == null) {
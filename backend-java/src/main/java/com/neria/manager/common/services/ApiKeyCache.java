@@ -0,0 +1,131 @@
+package com.neria.manager.common.services;
+
+import com.neria.manager.common.security.AuthContext;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ApiKeyCache {
+  private static class CacheEntry {
+    final AuthContext context;
+    final long expiresAt;
+
+    CacheEntry(AuthContext context, long expiresAt) {
+      this.context = context;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final SecretKeySpec digestKey;
+  private final ThreadLocal<Mac> macs;
+  private final long ttlSeconds;
+  private final int maxEntries;
+  private final LinkedHashMap<String, CacheEntry> entries;
+
+  public ApiKeyCache() {
+    // Per-process key: digests never leave memory and do not survive a restart.
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.digestKey = new SecretKeySpec(secret, "HmacSHA256");
+    this.macs = ThreadLocal.withInitial(this::newMac);
+    this.ttlSeconds = Long.parseLong(System.getenv().getOrDefault("API_KEY_CACHE_TTL", "300"));
+    this.maxEntries =
+        Integer.parseInt(System.getenv().getOrDefault("API_KEY_CACHE_MAX_ENTRIES", "10000"));
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  public AuthContext get(String apiKey) {
+    if (!isEnabled() || apiKey == null) {
+      return null;
+    }
+    String digest = digest(apiKey);
+    synchronized (entries) {
+      CacheEntry cached = entries.get(digest);
+      if (cached == null) {
+        return null;
+      }
+      if (cached.expiresAt <= now()) {
+        entries.remove(digest);
+        return null;
+      }
+      return cached.context;
+    }
+  }
+
+  public void put(String apiKey, AuthContext context) {
+    if (!isEnabled() || apiKey == null || context == null) {
+      return;
+    }
+    String digest = digest(apiKey);
+    CacheEntry entry = new CacheEntry(context, now() + ttlSeconds * 1000L);
+    synchronized (entries) {
+      entries.put(digest, entry);
+    }
+  }
+
+  public void invalidateApiKey(String apiKeyId) {
+    if (apiKeyId == null) {
+      return;
+    }
+    synchronized (entries) {
+      entries.values().removeIf(entry -> apiKeyId.equals(entry.context.getApiKeyId()));
+    }
+  }
+
+  public void invalidateService(String tenantId, String serviceCode) {
+    if (tenantId == null || serviceCode == null) {
+      return;
+    }
+    synchronized (entries) {
+      entries
+          .values()
+          .removeIf(
+              entry ->
+                  tenantId.equals(entry.context.getTenantId())
+                      && Objects.equals(serviceCode, entry.context.getServiceCode()));
+    }
+  }
+
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private boolean isEnabled() {
+    return ttlSeconds > 0 && maxEntries > 0;
+  }
+
+  private String digest(String apiKey) {
+    Mac mac = macs.get();
+    return HexFormat.of().formatHex(mac.doFinal(apiKey.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(digestKey);
+      return mac;
+    } catch (Exception ex) {
+      throw new IllegalStateException("Unable to initialise API key digest", ex);
+    }
+  }
+
+  private long now() {
+    return Instant.now().toEpochMilli();
+  }
+}
@@ -0,0 +1,130 @@
+package com.neria.manager.common.services;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+@Service
+public class BlockingTaskExecutor {
+  private static final Logger log = LoggerFactory.getLogger(BlockingTaskExecutor.class);
+
+  private final ExecutorService executor;
+  private final boolean virtualThreads;
+  private final int maxConcurrentPerTenant;
+  private final long acquireTimeoutMs;
+  // Only tenants with calls running or waiting have an entry; the last one out removes it.
+  private final ConcurrentHashMap<String, TenantSlot> tenantPermits = new ConcurrentHashMap<>();
+
+  private static final class TenantSlot {
+    final Semaphore semaphore;
+    int holders;
+
+    TenantSlot(int permits) {
+      this.semaphore = new Semaphore(permits);
+    }
+  }
+
+  public BlockingTaskExecutor() {
+    this.maxConcurrentPerTenant =
+        Integer.parseInt(System.getenv().getOrDefault("TENANT_MAX_CONCURRENT_CALLS", "64"));
+    this.acquireTimeoutMs =
+        Long.parseLong(System.getenv().getOrDefault("TENANT_CONCURRENCY_WAIT_MS", "250"));
+    ExecutorService virtual = newVirtualThreadExecutor();
+    this.virtualThreads = virtual != null;
+    this.executor = virtual != null ? virtual : newPlatformExecutor();
+    log.info(
+        "Blocking task executor using {} threads (per-tenant cap={})",
+        virtualThreads ? "virtual" : "platform",
+        maxConcurrentPerTenant);
+  }
+
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    return CompletableFuture.supplyAsync(task, executor);
+  }
+
+  public boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public Permit acquire(String tenantId) {
+    if (maxConcurrentPerTenant <= 0 || tenantId == null) {
+      return () -> {};
+    }
+    TenantSlot slot =
+        tenantPermits.compute(
+            tenantId,
+            (key, current) -> {
+              TenantSlot next = current != null ? current : new TenantSlot(maxConcurrentPerTenant);
+              next.holders++;
+              return next;
+            });
+    boolean acquired;
+    try {
+      acquired = slot.semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      leave(tenantId);
+      throw new ResponseStatusException(
+          HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent requests for tenant");
+    }
+    return () -> {
+      slot.semaphore.release();
+      leave(tenantId);
+    };
+  }
+
+  private void leave(String tenantId) {
+    tenantPermits.computeIfPresent(tenantId, (key, slot) -> --slot.holders == 0 ? null : slot);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  // Java 21+ runtimes get virtual threads; the code still compiles and runs on Java 17.
+  private ExecutorService newVirtualThreadExecutor() {
+    if (!"true".equalsIgnoreCase(System.getenv().getOrDefault("VIRTUAL_THREADS_ENABLED", "true"))) {
+      return null;
+    }
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return null;
+    }
+  }
+
+  private ExecutorService newPlatformExecutor() {
+    AtomicInteger counter = new AtomicInteger();
+    return Executors.newCachedThreadPool(
+        runnable -> {
+          Thread thread = new Thread(runnable, "blocking-task-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  public interface Permit extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
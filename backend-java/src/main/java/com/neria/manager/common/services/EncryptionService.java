@@ -49,6 +49,11 @@ public class EncryptionService {
   }
 
   public String decrypt(String payload) {
+    return new String(decryptBytes(payload), StandardCharsets.UTF_8);
+  }
+
+  // Callers own the returned buffer and should zero it once the plaintext is consumed.
+  public byte[] decryptBytes(String payload) {
     try {
       byte[] input = Base64.getDecoder().decode(payload);
       ByteBuffer buffer = ByteBuffer.wrap(input);
@@ -64,8 +69,7 @@ public class EncryptionService {
           .array();
       Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
       cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(TAG_LENGTH * 8, iv));
-      byte[] decrypted = cipher.doFinal(encrypted);
-      return new String(decrypted, StandardCharsets.UTF_8);
+      return cipher.doFinal(encrypted);
     } catch (Exception ex) {
       throw new IllegalStateException("Unable to decrypt payload", ex);
     }
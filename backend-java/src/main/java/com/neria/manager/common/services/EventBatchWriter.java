@@ -0,0 +1,381 @@
+package com.neria.manager.common.services;
+
+import com.neria.manager.common.entities.AuditEvent;
+import com.neria.manager.common.entities.UsageEvent;
+import com.neria.manager.usage.UsageRollupService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Write-behind pipeline for usage and audit events: callers enqueue, a single writer thread
+// flushes JDBC batches every EVENT_WRITER_BATCH_SIZE rows or EVENT_WRITER_FLUSH_MS.
+@Service
+public class EventBatchWriter {
+  private static final Logger log = LoggerFactory.getLogger(EventBatchWriter.class);
+
+  private static final String INSERT_USAGE =
+      "INSERT INTO usage_events "
+          + "(id, tenantId, providerId, model, serviceCode, tokensIn, tokensOut, costUsd, hedge, "
+          + "createdAt) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_AUDIT =
+      "INSERT INTO audit_events (id, tenantId, action, status, metadata, createdAt) "
+          + "VALUES (?, ?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final UsageRollupService usageRollups;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long flushIntervalMs;
+  private final long offerTimeoutMs;
+  private final boolean dropOnOverflow;
+  private final int maxAttempts;
+  private final long retryBackoffMs;
+  private final ArrayBlockingQueue<Object> queue;
+  private final Thread worker;
+  private volatile boolean running = true;
+  // Usage events accepted but not yet committed (or given up on), counted per createdAt second.
+  private final ConcurrentSkipListMap<LocalDateTime, Integer> pendingUsage =
+      new ConcurrentSkipListMap<>();
+
+  private final Timer usageFlushTimer;
+  private final Timer auditFlushTimer;
+  private final Counter droppedCounter;
+  private final Counter fallbackCounter;
+  private final Counter failedCounter;
+  private final Counter requeuedCounter;
+
+  public EventBatchWriter(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      UsageRollupService usageRollups,
+      MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.usageRollups = usageRollups;
+    this.enabled =
+        "true".equalsIgnoreCase(System.getenv().getOrDefault("EVENT_WRITER_ENABLED", "true"));
+    this.batchSize =
+        Math.max(1, Integer.parseInt(System.getenv().getOrDefault("EVENT_WRITER_BATCH_SIZE", "200")));
+    this.flushIntervalMs =
+        Math.max(1L, Long.parseLong(System.getenv().getOrDefault("EVENT_WRITER_FLUSH_MS", "200")));
+    this.offerTimeoutMs =
+        Long.parseLong(System.getenv().getOrDefault("EVENT_WRITER_OFFER_TIMEOUT_MS", "50"));
+    // "sync" writes the event on the caller's thread when the queue stays full; "drop" discards it.
+    this.dropOnOverflow =
+        "drop".equalsIgnoreCase(System.getenv().getOrDefault("EVENT_WRITER_OVERFLOW", "sync"));
+    this.maxAttempts =
+        Math.max(1, Integer.parseInt(System.getenv().getOrDefault("EVENT_WRITER_MAX_ATTEMPTS", "3")));
+    this.retryBackoffMs =
+        Long.parseLong(System.getenv().getOrDefault("EVENT_WRITER_RETRY_BACKOFF_MS", "100"));
+    int capacity =
+        Math.max(
+            1, Integer.parseInt(System.getenv().getOrDefault("EVENT_WRITER_QUEUE_CAPACITY", "10000")));
+    this.queue = new ArrayBlockingQueue<>(capacity);
+
+    Gauge.builder("event.writer.queue.depth", queue, ArrayBlockingQueue::size)
+        .description("Usage and audit events waiting to be written")
+        .register(meterRegistry);
+    this.usageFlushTimer =
+        Timer.builder("event.writer.flush").tag("type", "usage").register(meterRegistry);
+    this.auditFlushTimer =
+        Timer.builder("event.writer.flush").tag("type", "audit").register(meterRegistry);
+    this.droppedCounter = Counter.builder("event.writer.dropped").register(meterRegistry);
+    this.fallbackCounter = Counter.builder("event.writer.sync.fallback").register(meterRegistry);
+    this.failedCounter = Counter.builder("event.writer.failed").register(meterRegistry);
+    this.requeuedCounter = Counter.builder("event.writer.requeued").register(meterRegistry);
+
+    this.worker = new Thread(this::runWorker, "event-writer");
+    this.worker.setDaemon(true);
+    if (enabled) {
+      this.worker.start();
+    }
+  }
+
+  public void write(UsageEvent event) {
+    trackPending(List.of(event), 1);
+    enqueue(event);
+  }
+
+  // Every usage event this replica accepted with a createdAt before the returned second has been
+  // committed or given up on; null when nothing is pending. Readers that trust the database for
+  // older rows must not look past it.
+  public LocalDateTime usageCommittedBefore() {
+    return pendingUsage.isEmpty() ? null : pendingUsage.firstKey();
+  }
+
+  public void write(AuditEvent event) {
+    enqueue(event);
+  }
+
+  private void enqueue(Object event) {
+    if (!enabled || !running) {
+      flush(List.of(event));
+      return;
+    }
+    boolean accepted;
+    try {
+      accepted = queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      accepted = false;
+    }
+    if (accepted) {
+      return;
+    }
+    if (dropOnOverflow) {
+      settle(List.of(event));
+      droppedCounter.increment();
+      log.warn("Event writer queue full, dropping {}", event.getClass().getSimpleName());
+      return;
+    }
+    fallbackCounter.increment();
+    flush(List.of(event));
+  }
+
+  private void runWorker() {
+    List<Object> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Object first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.currentTimeMillis();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          Object next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        if (!batch.isEmpty()) {
+          flush(batch);
+        }
+        return;
+      } catch (RuntimeException ex) {
+        log.error("Event writer loop failed", ex);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<Object> events) {
+    List<UsageEvent> usage = new ArrayList<>();
+    List<AuditEvent> audit = new ArrayList<>();
+    for (Object event : events) {
+      if (event instanceof UsageEvent usageEvent) {
+        usage.add(usageEvent);
+      } else if (event instanceof AuditEvent auditEvent) {
+        audit.add(auditEvent);
+      }
+    }
+    if (!usage.isEmpty()) {
+      usageFlushTimer.record(() -> insertUsage(usage));
+    }
+    if (!audit.isEmpty()) {
+      auditFlushTimer.record(() -> insertAudit(audit));
+    }
+  }
+
+  // Rollup increments commit together with the rows they count, so a rollup compaction running
+  // on any replica never sees one without the other.
+  private void insertUsage(List<UsageEvent> events) {
+    insert("usage", INSERT_USAGE, events, this::bindUsage, usageRollups::apply);
+  }
+
+  private void insertAudit(List<AuditEvent> events) {
+    insert("audit", INSERT_AUDIT, events, this::bindAudit, written -> {});
+  }
+
+  // Each attempt is one transaction. A batch that fails for a transient reason is retried with
+  // backoff and then put back on the queue. A constraint violation means one bad (or already
+  // written) row, so the batch is split and written row by row; only rows that fail on their
+  // own are counted as failed.
+  private <T> void insert(
+      String type,
+      String sql,
+      List<T> events,
+      ParameterizedPreparedStatementSetter<T> binder,
+      Consumer<List<T>> afterInsert) {
+    long backoffMs = retryBackoffMs;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        insertInTransaction(sql, events, binder, afterInsert);
+        return;
+      } catch (DataIntegrityViolationException ex) {
+        log.warn("Batch of {} {} events rejected, writing row by row", events.size(), type, ex);
+        insertRows(type, sql, events, binder, afterInsert);
+        return;
+      } catch (RuntimeException ex) {
+        if (attempt >= maxAttempts || !sleep(backoffMs)) {
+          requeue(type, events, ex);
+          return;
+        }
+        backoffMs *= 2;
+      }
+    }
+  }
+
+  private <T> void insertRows(
+      String type,
+      String sql,
+      List<T> events,
+      ParameterizedPreparedStatementSetter<T> binder,
+      Consumer<List<T>> afterInsert) {
+    for (int i = 0; i < events.size(); i++) {
+      try {
+        insertInTransaction(sql, List.of(events.get(i)), binder, afterInsert);
+      } catch (DuplicateKeyException ex) {
+        // Already committed by an earlier attempt whose outcome was lost; nothing to redo.
+        settle(List.of(events.get(i)));
+      } catch (DataIntegrityViolationException ex) {
+        settle(List.of(events.get(i)));
+        failedCounter.increment();
+        log.error("Failed to write {} event", type, ex);
+      } catch (RuntimeException ex) {
+        requeue(type, events.subList(i, events.size()), ex);
+        return;
+      }
+    }
+  }
+
+  private <T> void insertInTransaction(
+      String sql,
+      List<T> events,
+      ParameterizedPreparedStatementSetter<T> binder,
+      Consumer<List<T>> afterInsert) {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          jdbcTemplate.batchUpdate(sql, events, events.size(), binder);
+          afterInsert.accept(events);
+        });
+    settle(events);
+  }
+
+  // Nothing is dropped while the queue has room; the worker picks the events up again on its
+  // next pass. During shutdown there is no next pass, so they count as failed.
+  private void requeue(String type, List<?> events, RuntimeException cause) {
+    int requeued = 0;
+    if (running && enabled) {
+      for (Object event : events) {
+        if (!queue.offer(event)) {
+          break;
+        }
+        requeued++;
+      }
+    }
+    requeuedCounter.increment(requeued);
+    int lost = events.size() - requeued;
+    if (lost > 0) {
+      settle(events.subList(requeued, events.size()));
+      failedCounter.increment(lost);
+      log.error("Failed to write {} {} events", lost, type, cause);
+    } else {
+      log.warn("Re-queued {} {} events after write failure", requeued, type, cause);
+    }
+  }
+
+  private void settle(List<?> events) {
+    trackPending(events, -1);
+  }
+
+  private void trackPending(List<?> events, int delta) {
+    for (Object event : events) {
+      if (event instanceof UsageEvent usage && usage.getCreatedAt() != null) {
+        pendingUsage.compute(
+            usage.getCreatedAt().truncatedTo(ChronoUnit.SECONDS),
+            (second, count) -> {
+              int next = (count != null ? count : 0) + delta;
+              return next > 0 ? next : null;
+            });
+      }
+    }
+  }
+
+  private boolean sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void bindUsage(PreparedStatement ps, UsageEvent event) throws SQLException {
+    ps.setString(1, event.getId());
+    ps.setString(2, event.getTenantId());
+    ps.setString(3, event.getProviderId());
+    ps.setString(4, event.getModel());
+    ps.setString(5, event.getServiceCode());
+    ps.setInt(6, event.getTokensIn());
+    ps.setInt(7, event.getTokensOut());
+    ps.setBigDecimal(8, event.getCostUsd());
+    ps.setBoolean(9, event.isHedge());
+    ps.setTimestamp(10, event.getCreatedAt() != null ? Timestamp.valueOf(event.getCreatedAt()) : null);
+  }
+
+  private void bindAudit(PreparedStatement ps, AuditEvent event) throws SQLException {
+    ps.setString(1, event.getId());
+    ps.setString(2, event.getTenantId());
+    ps.setString(3, event.getAction());
+    ps.setString(4, event.getStatus());
+    ps.setString(5, event.getMetadata());
+    ps.setTimestamp(6, event.getCreatedAt() != null ? Timestamp.valueOf(event.getCreatedAt()) : null);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    if (!enabled) {
+      return;
+    }
+    try {
+      worker.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    // Anything the worker did not get to is written on the shutdown thread.
+    List<Object> remaining = new ArrayList<>();
+    queue.drainTo(remaining);
+    if (!remaining.isEmpty()) {
+      for (int i = 0; i < remaining.size(); i += batchSize) {
+        flush(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.neria.manager.common.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Opaque keyset position for event listings ordered by (createdAt desc, id desc).
+public record EventCursor(LocalDateTime createdAt, String id) {
+  public String encode() {
+    String raw = createdAt + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static EventCursor decode(String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+      int separator = raw.indexOf('|');
+      return new EventCursor(
+          LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+    } catch (RuntimeException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+  }
+
+  public record Page<T>(List<T> items, String nextCursor) {}
+}
@@ -2,6 +2,7 @@ package com.neria.manager.common.services;
 
 import com.neria.manager.config.AppProperties;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -15,11 +16,18 @@ import org.springframework.stereotype.Service;
 @Service
 public class JwtService {
   private final Key key;
+  private final JwtParser parser;
+  private final VerifiedTokenCache verifiedTokens;
   private final long ttlSeconds;
 
   public JwtService(AppProperties properties) {
     String secret = properties.getJwt().getSecret();
     this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    this.verifiedTokens =
+        new VerifiedTokenCache(
+            Long.parseLong(System.getenv().getOrDefault("JWT_VERIFY_CACHE_TTL", "60")),
+            Integer.parseInt(System.getenv().getOrDefault("JWT_VERIFY_CACHE_MAX_ENTRIES", "10000")));
     this.ttlSeconds = properties.getJwt().getTtl();
   }
 
@@ -34,7 +42,13 @@ public class JwtService {
   }
 
   public Claims verify(String token) {
-    return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    Claims cached = verifiedTokens.get(token);
+    if (cached != null) {
+      return cached;
+    }
+    Claims claims = parser.parseClaimsJws(token).getBody();
+    verifiedTokens.put(token, claims);
+    return claims;
   }
 
   public long getTtlSeconds() {
@@ -2,81 +2,108 @@ package com.neria.manager.common.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neria.manager.common.entities.SystemSetting;
-import com.neria.manager.common.entities.Tenant;
 import com.neria.manager.common.repos.SystemSettingRepository;
 import com.neria.manager.common.repos.TenantRepository;
-import java.time.Instant;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+// Kill-switch state is held in memory and kept current from the kill_switch_changes log: local
+// writes apply immediately, other replicas pick them up on their next poll (one indexed query,
+// KILL_SWITCH_POLL_MS). Lookups on the request path never touch the database. The poll has its
+// own thread so the jobs on Spring's shared scheduler cannot delay it.
 @Service
 public class KillSwitchService {
-  private static class CacheEntry {
-    final boolean value;
-    final long timestamp;
+  private static final Logger log = LoggerFactory.getLogger(KillSwitchService.class);
 
-    CacheEntry(boolean value, long timestamp) {
-      this.value = value;
-      this.timestamp = timestamp;
-    }
-  }
+  private static final String GLOBAL = "global";
+  private static final String TENANT = "tenant";
 
   private final TenantRepository tenantRepository;
   private final SystemSettingRepository settingsRepository;
   private final ObjectMapper objectMapper;
-  private final long ttlSeconds;
-  private final ConcurrentHashMap<String, CacheEntry> tenantCache = new ConcurrentHashMap<>();
-  private CacheEntry globalCache;
+  private final JdbcTemplate jdbcTemplate;
+  private final Timer propagationLag;
+  private final String instanceId = UUID.randomUUID().toString();
+  private final Object writeLock = new Object();
+  private volatile boolean globalEnabled;
+  // Replaced wholesale on every change so readers always see a consistent set.
+  private volatile Set<String> killedTenants = Set.of();
+  private volatile long lastChangeId;
+  // Ids read by the previous poll, so rows read again from the gap window are not re-timed.
+  private Set<Long> recentChangeIds = Set.of();
+  private final long pollMs;
+  private final long gapWindow;
+  private final ScheduledExecutorService poller;
 
   public KillSwitchService(
       TenantRepository tenantRepository,
       SystemSettingRepository settingsRepository,
-      ObjectMapper objectMapper) {
+      ObjectMapper objectMapper,
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry) {
     this.tenantRepository = tenantRepository;
     this.settingsRepository = settingsRepository;
     this.objectMapper = objectMapper;
-    this.ttlSeconds = Long.parseLong(System.getenv().getOrDefault("KILL_SWITCH_CACHE_TTL", "30"));
+    this.jdbcTemplate = jdbcTemplate;
+    this.propagationLag =
+        Timer.builder("kill.switch.propagation.lag")
+            .description("Time from a kill-switch change on one replica to it applying on this one")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    this.pollMs = Long.parseLong(System.getenv().getOrDefault("KILL_SWITCH_POLL_MS", "500"));
+    this.gapWindow =
+        Long.parseLong(System.getenv().getOrDefault("KILL_SWITCH_GAP_WINDOW", "100"));
+    this.poller =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "kill-switch-poll");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @PostConstruct
+  public void init() {
+    Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM kill_switch_changes", Long.class);
+    lastChangeId = maxId != null ? maxId : 0L;
+    resync();
+    poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    poller.shutdownNow();
   }
 
   public boolean getTenantKillSwitch(String tenantId) {
-    CacheEntry cached = tenantCache.get(tenantId);
-    if (cached != null && !isExpired(cached)) {
-      return cached.value;
-    }
-    boolean enabled =
-        tenantRepository
-            .findById(tenantId)
-            .map(Tenant::isKillSwitch)
-            .orElse(false);
-    tenantCache.put(tenantId, new CacheEntry(enabled, now()));
-    return enabled;
+    return tenantId != null && killedTenants.contains(tenantId);
   }
 
+  // Call after the tenant's killSwitch column was saved.
   public void setTenantKillSwitch(String tenantId, boolean enabled) {
-    tenantCache.put(tenantId, new CacheEntry(enabled, now()));
+    applyTenant(tenantId, enabled);
+    recordChange(TENANT, tenantId, enabled);
   }
 
   public boolean getGlobalKillSwitch() {
-    if (globalCache != null && !isExpired(globalCache)) {
-      return globalCache.value;
-    }
-    boolean fallback = "true".equalsIgnoreCase(System.getenv().getOrDefault("KILL_SWITCH_DEFAULT", "false"));
-    boolean enabled = fallback;
-    SystemSetting setting = settingsRepository.findById("global_kill_switch").orElse(null);
-    if (setting != null && setting.getValue() != null) {
-      try {
-        Map<String, Object> parsed = objectMapper.readValue(setting.getValue(), Map.class);
-        Object raw = parsed.get("enabled");
-        if (raw instanceof Boolean) {
-          enabled = (Boolean) raw;
-        }
-      } catch (Exception ignore) {
-        // keep fallback
-      }
-    }
-    globalCache = new CacheEntry(enabled, now());
-    return enabled;
+    return globalEnabled;
   }
 
   public void setGlobalKillSwitch(boolean enabled) {
@@ -88,14 +115,122 @@ public class KillSwitchService {
       setting.setValue("{\"enabled\":false}");
     }
     settingsRepository.save(setting);
-    globalCache = new CacheEntry(enabled, now());
+    globalEnabled = enabled;
+    recordChange(GLOBAL, null, enabled);
+  }
+
+  // A row can commit after one with a higher id, so the last KILL_SWITCH_GAP_WINDOW ids below
+  // the newest seen are read again on every poll. Replaying them in id order leaves each switch
+  // at its latest logged value. Own changes were applied when written; re-applying them is
+  // harmless and lets a resync replay the log without special cases.
+  void poll() {
+    long previous = lastChangeId;
+    Set<Long> seen = recentChangeIds;
+    Set<Long> ids = new HashSet<>();
+    try {
+      jdbcTemplate.query(
+          "SELECT id, scope, tenantId, enabled, origin, createdAt FROM kill_switch_changes "
+              + "WHERE id > ? ORDER BY id LIMIT 1000",
+          rs -> {
+            long id = rs.getLong("id");
+            ids.add(id);
+            lastChangeId = Math.max(lastChangeId, id);
+            boolean enabled = rs.getBoolean("enabled");
+            if (GLOBAL.equals(rs.getString("scope"))) {
+              globalEnabled = enabled;
+            } else {
+              applyTenant(rs.getString("tenantId"), enabled);
+            }
+            Timestamp createdAt = rs.getTimestamp("createdAt");
+            boolean firstRead = id > previous || !seen.contains(id);
+            if (firstRead && createdAt != null && !instanceId.equals(rs.getString("origin"))) {
+              propagationLag.record(
+                  Duration.ofMillis(Math.max(0L, System.currentTimeMillis() - createdAt.getTime())));
+            }
+          },
+          Math.max(0L, previous - gapWindow));
+      recentChangeIds = ids;
+    } catch (RuntimeException ex) {
+      log.warn("Kill switch change poll failed", ex);
+    }
+  }
+
+  // Safety net for changes made outside this service (manual SQL, restored backups) and for
+  // log rows that committed out of id order further back than the gap window.
+  @Scheduled(
+      initialDelayString = "${KILL_SWITCH_RESYNC_MS:300000}",
+      fixedDelayString = "${KILL_SWITCH_RESYNC_MS:300000}")
+  public void resync() {
+    long replayFrom = lastChangeId;
+    try {
+      Set<String> tenants = Set.copyOf(tenantRepository.findKillSwitchTenantIds());
+      boolean global = readGlobalSetting();
+      synchronized (writeLock) {
+        killedTenants = tenants;
+      }
+      globalEnabled = global;
+      // Changes logged while the snapshot was read are replayed on top of it by the next poll.
+      lastChangeId = Math.min(lastChangeId, replayFrom);
+    } catch (RuntimeException ex) {
+      log.warn("Kill switch resync failed", ex);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${KILL_SWITCH_PURGE_MS:3600000}")
+  public void purge() {
+    try {
+      jdbcTemplate.update(
+          "DELETE FROM kill_switch_changes WHERE createdAt < ?",
+          Timestamp.valueOf(LocalDateTime.now().minusDays(1)));
+    } catch (RuntimeException ex) {
+      log.warn("Kill switch change purge failed", ex);
+    }
+  }
+
+  private void applyTenant(String tenantId, boolean enabled) {
+    if (tenantId == null) {
+      return;
+    }
+    synchronized (writeLock) {
+      if (killedTenants.contains(tenantId) == enabled) {
+        return;
+      }
+      Set<String> next = new HashSet<>(killedTenants);
+      if (enabled) {
+        next.add(tenantId);
+      } else {
+        next.remove(tenantId);
+      }
+      killedTenants = Set.copyOf(next);
+    }
   }
 
-  private boolean isExpired(CacheEntry entry) {
-    return (now() - entry.timestamp) > (ttlSeconds * 1000L);
+  private void recordChange(String scope, String tenantId, boolean enabled) {
+    jdbcTemplate.update(
+        "INSERT INTO kill_switch_changes (scope, tenantId, enabled, origin, createdAt) "
+            + "VALUES (?, ?, ?, ?, ?)",
+        scope,
+        tenantId,
+        enabled,
+        instanceId,
+        Timestamp.valueOf(LocalDateTime.now()));
   }
 
-  private long now() {
-    return Instant.now().toEpochMilli();
+  private boolean readGlobalSetting() {
+    boolean enabled =
+        "true".equalsIgnoreCase(System.getenv().getOrDefault("KILL_SWITCH_DEFAULT", "false"));
+    SystemSetting setting = settingsRepository.findById("global_kill_switch").orElse(null);
+    if (setting != null && setting.getValue() != null) {
+      try {
+        Map<String, Object> parsed = objectMapper.readValue(setting.getValue(), Map.class);
+        Object raw = parsed.get("enabled");
+        if (raw instanceof Boolean) {
+          enabled = (Boolean) raw;
+        }
+      } catch (Exception ignore) {
+        // keep fallback
+      }
+    }
+    return enabled;
   }
 }
@@ -0,0 +1,43 @@
+package com.neria.manager.common.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// In-process stand-in for a single replica (and for local development).
+@Service
+@ConditionalOnProperty(name = "SHARED_STATE_BACKEND", havingValue = "local", matchIfMissing = true)
+public class LocalSharedStateStore implements SharedStateStore {
+  private record CounterKey(String key, long windowStart) {}
+
+  private final ConcurrentHashMap<CounterKey, AtomicLong> counters = new ConcurrentHashMap<>();
+
+  @Override
+  public long acquire(String key, long windowStart, long requested, long limit) {
+    AtomicLong used = counters.computeIfAbsent(new CounterKey(key, windowStart), k -> new AtomicLong());
+    while (true) {
+      long current = used.get();
+      long granted = Math.min(requested, limit - current);
+      if (granted <= 0) {
+        return 0;
+      }
+      if (used.compareAndSet(current, current + granted)) {
+        return granted;
+      }
+    }
+  }
+
+  @Override
+  public boolean isDistributed() {
+    return false;
+  }
+
+  @Scheduled(fixedDelayString = "${SHARED_STATE_PURGE_MS:60000}")
+  public void purge() {
+    long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5);
+    counters.keySet().removeIf(key -> key.windowStart() < cutoff);
+  }
+}
@@ -0,0 +1,76 @@
+package com.neria.manager.common.services;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Shared state in the application database. Counters are rows locked for the few statements of
+// a lease.
+@Service
+@ConditionalOnProperty(name = "SHARED_STATE_BACKEND", havingValue = "mysql")
+public class MysqlSharedStateStore implements SharedStateStore {
+  private static final Logger log = LoggerFactory.getLogger(MysqlSharedStateStore.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  public MysqlSharedStateStore(
+      JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public long acquire(String key, long windowStart, long requested, long limit) {
+    Timestamp window = new Timestamp(windowStart);
+    Long granted =
+        transactionTemplate.execute(
+            status -> {
+              jdbcTemplate.update(
+                  "INSERT IGNORE INTO shared_counters (counterKey, windowStart, used) VALUES (?, ?, 0)",
+                  key,
+                  window);
+              Long used =
+                  jdbcTemplate.queryForObject(
+                      "SELECT used FROM shared_counters "
+                          + "WHERE counterKey = ? AND windowStart = ? FOR UPDATE",
+                      Long.class,
+                      key,
+                      window);
+              long available = Math.min(requested, limit - (used != null ? used : 0L));
+              if (available <= 0) {
+                return 0L;
+              }
+              jdbcTemplate.update(
+                  "UPDATE shared_counters SET used = used + ? WHERE counterKey = ? AND windowStart = ?",
+                  available,
+                  key,
+                  window);
+              return available;
+            });
+    return granted != null ? granted : 0L;
+  }
+
+  @Override
+  public boolean isDistributed() {
+    return true;
+  }
+
+  @Scheduled(fixedDelayString = "${SHARED_STATE_PURGE_MS:60000}")
+  public void purge() {
+    try {
+      jdbcTemplate.update(
+          "DELETE FROM shared_counters WHERE windowStart < ?",
+          Timestamp.valueOf(LocalDateTime.now().minusMinutes(5)));
+    } catch (RuntimeException ex) {
+      log.warn("Shared state purge failed", ex);
+    }
+  }
+}
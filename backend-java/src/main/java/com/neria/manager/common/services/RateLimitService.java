@@ -1,42 +1,328 @@
 package com.neria.manager.common.services;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+// Token bucket per key, implemented as GCRA: each bucket is a single "theoretical arrival time"
+// advanced with CAS, so there is no lock and no per-request allocation. Tokens refill
+// continuously instead of resetting on a fixed window edge. With a distributed SharedStateStore
+// the request limits are also enforced cluster-wide through leases on a per-minute counter.
 @Service
 public class RateLimitService {
+  private static final Logger log = LoggerFactory.getLogger(RateLimitService.class);
+  private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+  public record Limit(String key, int requestsPerMinute) {}
+
+  public record Decision(
+      boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {
+    public HttpHeaders toHeaders() {
+      HttpHeaders headers = new HttpHeaders();
+      headers.set("X-RateLimit-Limit", Integer.toString(limit));
+      headers.set("X-RateLimit-Remaining", Integer.toString(remaining));
+      headers.set("X-RateLimit-Reset", Long.toString(resetSeconds));
+      if (!allowed) {
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+      }
+      return headers;
+    }
+  }
+
+  public static class RateLimitExceededException extends ResponseStatusException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Decision decision;
+
+    public RateLimitExceededException(Decision decision) {
+      super(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+      this.decision = decision;
+    }
+
+    public Decision getDecision() {
+      return decision;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return decision.toHeaders();
+    }
+  }
+
+  // Tokens held against a tokens-per-minute bucket until the real usage is known.
+  public static final class Reservation {
+    private final Bucket bucket;
+    private final long tokens;
+    private final AtomicBoolean settled = new AtomicBoolean(false);
+
+    private Reservation(Bucket bucket, long tokens) {
+      this.bucket = bucket;
+      this.tokens = tokens;
+    }
+
+    public long getTokens() {
+      return tokens;
+    }
+
+    // Swaps the estimate for the actual count; an overestimate is handed back to the bucket.
+    public void reconcile(long actualTokens) {
+      if (settled.compareAndSet(false, true)) {
+        bucket.tat.addAndGet((Math.max(0L, actualTokens) - tokens) * bucket.intervalNanos);
+        bucket.reservations.decrementAndGet();
+      }
+    }
+
+    public void release() {
+      reconcile(0);
+    }
+  }
+
   private static class Bucket {
-    int count;
-    long windowStart;
+    final int limit;
+    final int capacity;
+    final long intervalNanos;
+    final AtomicLong tat;
+    final AtomicInteger reservations = new AtomicInteger();
 
-    Bucket(int count, long windowStart) {
-      this.count = count;
-      this.windowStart = windowStart;
+    Bucket(int limit, int capacity, long now) {
+      this.limit = limit;
+      this.capacity = capacity;
+      this.intervalNanos = Math.max(1L, MINUTE_NANOS / limit);
+      this.tat = new AtomicLong(now);
     }
   }
 
+  // Capacity this replica took from the shared counter for the current minute.
+  private static class Lease {
+    volatile long window = -1L;
+    volatile boolean exhausted;
+    final AtomicLong remaining = new AtomicLong();
+  }
+
   private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+  private final SharedStateStore sharedState;
+  private final double burstRatio;
+  private final double leaseRatio;
 
-  public void consume(String key, int maxRequestsPerMinute) {
+  public RateLimitService(SharedStateStore sharedState) {
+    this.sharedState = sharedState;
+    // Share of the per-minute limit that may be spent at once; 1.0 allows a full minute's quota.
+    this.burstRatio =
+        Double.parseDouble(System.getenv().getOrDefault("RATE_LIMIT_BURST_RATIO", "1.0"));
+    // Share of the limit a replica leases per trip to the shared store. Larger leases mean
+    // fewer round trips but more unused capacity stranded on idle replicas.
+    this.leaseRatio =
+        Double.parseDouble(System.getenv().getOrDefault("RATE_LIMIT_LEASE_RATIO", "0.1"));
+  }
+
+  public Decision consume(String key, int maxRequestsPerMinute) {
+    Decision decision = tryConsume(key, maxRequestsPerMinute);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(decision);
+    }
+    return decision;
+  }
+
+  // Takes one token from every limit or from none, and reports the tightest one.
+  public Decision consumeAll(List<Limit> limits) {
+    List<Bucket> taken = new ArrayList<>(limits.size());
+    Decision tightest = null;
+    for (Limit limit : limits) {
+      if (limit.requestsPerMinute() <= 0) {
+        continue;
+      }
+      Bucket bucket = bucket(limit.key(), limit.requestsPerMinute());
+      Decision decision = acquire(bucket, 1);
+      if (decision.allowed()) {
+        Decision shared = takeShared(limit.key(), limit.requestsPerMinute());
+        if (shared != null) {
+          bucket.tat.addAndGet(-bucket.intervalNanos);
+          decision = shared;
+        }
+      }
+      if (!decision.allowed()) {
+        for (Bucket held : taken) {
+          held.tat.addAndGet(-held.intervalNanos);
+        }
+        throw new RateLimitExceededException(decision);
+      }
+      taken.add(bucket);
+      if (tightest == null || decision.remaining() < tightest.remaining()) {
+        tightest = decision;
+      }
+    }
+    return tightest;
+  }
+
+  public Decision tryConsume(String key, int maxRequestsPerMinute) {
     int limit = Math.max(1, maxRequestsPerMinute);
-    long now = Instant.now().toEpochMilli();
-    long windowMs = 60_000L;
+    Bucket bucket = bucket(key, limit);
+    Decision decision = acquire(bucket, 1);
+    if (decision.allowed()) {
+      Decision shared = takeShared(key, limit);
+      if (shared != null) {
+        bucket.tat.addAndGet(-bucket.intervalNanos);
+        return shared;
+      }
+    }
+    return decision;
+  }
 
-    Bucket bucket = buckets.compute(
+  // Reserves an estimated token count, waiting up to maxWaitMs for the bucket to refill. A
+  // request larger than the whole budget reserves the full budget so it can still run once.
+  public Reservation reserveTokens(String key, int tokensPerMinute, long tokens, long maxWaitMs) {
+    Bucket bucket = bucket(key, Math.max(1, tokensPerMinute), tokensPerMinute);
+    long weight = Math.max(1L, Math.min(tokens, bucket.capacity));
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMs));
+    while (true) {
+      Decision decision = acquire(bucket, weight);
+      if (decision.allowed()) {
+        bucket.reservations.incrementAndGet();
+        return new Reservation(bucket, weight);
+      }
+      long wait = waitNanos(bucket, weight);
+      if (System.nanoTime() + wait - deadline > 0) {
+        throw new RateLimitExceededException(decision);
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new RateLimitExceededException(decision);
+      }
+    }
+  }
+
+  // A bucket whose arrival time is in the past is full again, so dropping it loses nothing as
+  // long as no reservation still has to be reconciled against it.
+  @Scheduled(
+      initialDelayString = "${RATE_LIMIT_SWEEP_MS:60000}",
+      fixedDelayString = "${RATE_LIMIT_SWEEP_MS:60000}")
+  public void evictIdle() {
+    long now = System.nanoTime();
+    buckets
+        .entrySet()
+        .removeIf(
+            entry ->
+                entry.getValue().tat.get() - now <= 0 && entry.getValue().reservations.get() == 0);
+    long window = currentWindow();
+    leases.values().removeIf(lease -> lease.window < window);
+  }
+
+  private Bucket bucket(String key, int limit) {
+    return bucket(key, limit, (int) Math.max(1L, Math.min(limit, Math.round(limit * burstRatio))));
+  }
+
+  private Bucket bucket(String key, int limit, int capacity) {
+    Bucket bucket = buckets.get(key);
+    if (bucket != null && bucket.limit == limit) {
+      return bucket;
+    }
+    // The limit changed (policy update) or the key is new; start from a full bucket.
+    return buckets.compute(
         key,
-        (k, existing) -> {
-          if (existing == null || now - existing.windowStart >= windowMs) {
-            return new Bucket(1, now);
-          }
-          existing.count += 1;
-          return existing;
-        });
+        (k, existing) ->
+            existing != null && existing.limit == limit
+                ? existing
+                : new Bucket(limit, capacity, System.nanoTime()));
+  }
 
-    if (bucket.count > limit) {
-      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+  private Decision acquire(Bucket bucket, long weight) {
+    long burstNanos = bucket.intervalNanos * bucket.capacity;
+    while (true) {
+      long now = System.nanoTime();
+      long tat = bucket.tat.get();
+      long next = Math.max(tat, now) + bucket.intervalNanos * weight;
+      long allowAt = next - burstNanos;
+      if (allowAt - now > 0) {
+        long backlog = Math.max(0L, tat - now);
+        return new Decision(
+            false, bucket.limit, 0, toSeconds(backlog), Math.max(1L, toSeconds(allowAt - now)));
+      }
+      if (bucket.tat.compareAndSet(tat, next)) {
+        int remaining = (int) ((burstNanos - (next - now)) / bucket.intervalNanos);
+        return new Decision(true, bucket.limit, Math.max(0, remaining), toSeconds(next - now), 0L);
+      }
     }
   }
+
+  // Returns null when the cluster-wide counter still has room, else the rejection to report.
+  private Decision takeShared(String key, int limit) {
+    if (!sharedState.isDistributed()) {
+      return null;
+    }
+    long window = currentWindow();
+    Lease lease = leases.computeIfAbsent(key, k -> new Lease());
+    if (lease.window == window && takeOne(lease.remaining)) {
+      return null;
+    }
+    synchronized (lease) {
+      if (lease.window != window) {
+        lease.remaining.set(0);
+        lease.exhausted = false;
+        lease.window = window;
+      }
+      if (takeOne(lease.remaining)) {
+        return null;
+      }
+      if (!lease.exhausted) {
+        long leaseSize = Math.max(1L, Math.round(limit * leaseRatio));
+        long granted;
+        try {
+          granted = sharedState.acquire("rl:" + key, window, leaseSize, limit);
+        } catch (RuntimeException ex) {
+          // The local bucket already enforces the per-replica limit; do not fail requests on it.
+          log.warn("Shared rate limit lease failed key={}", key, ex);
+          return null;
+        }
+        if (granted > 0) {
+          lease.remaining.addAndGet(granted - 1);
+          return null;
+        }
+        lease.exhausted = true;
+      }
+    }
+    long reset = toSeconds(TimeUnit.MILLISECONDS.toNanos(window + MINUTE_MS - System.currentTimeMillis()));
+    return new Decision(false, limit, 0, reset, Math.max(1L, reset));
+  }
+
+  private boolean takeOne(AtomicLong remaining) {
+    while (true) {
+      long current = remaining.get();
+      if (current <= 0) {
+        return false;
+      }
+      if (remaining.compareAndSet(current, current - 1)) {
+        return true;
+      }
+    }
+  }
+
+  private long currentWindow() {
+    long now = System.currentTimeMillis();
+    return now - now % MINUTE_MS;
+  }
+
+  private long waitNanos(Bucket bucket, long weight) {
+    long now = System.nanoTime();
+    long next = Math.max(bucket.tat.get(), now) + bucket.intervalNanos * weight;
+    return Math.max(0L, next - bucket.intervalNanos * bucket.capacity - now);
+  }
+
+  private long toSeconds(long nanos) {
+    return (nanos + 999_999_999L) / 1_000_000_000L;
+  }
 }
@@ -4,6 +4,7 @@ import com.lambdaworks.crypto.SCrypt;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.util.HexFormat;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -23,7 +24,7 @@ public class ScryptHasher {
               R,
               P,
               KEY_LEN);
-      return toHex(derived);
+      return HexFormat.of().formatHex(derived);
     } catch (GeneralSecurityException ex) {
       throw new IllegalStateException("Unable to hash value", ex);
     }
@@ -36,12 +37,4 @@ public class ScryptHasher {
     String computed = hash(value, salt);
     return MessageDigest.isEqual(computed.getBytes(StandardCharsets.UTF_8), expectedHex.getBytes(StandardCharsets.UTF_8));
   }
-
-  private String toHex(byte[] input) {
-    StringBuilder sb = new StringBuilder(input.length * 2);
-    for (byte b : input) {
-      sb.append(String.format("%02x", b));
-    }
-    return sb.toString();
-  }
 }
@@ -0,0 +1,13 @@
+package com.neria.manager.common.services;
+
+// State shared by every gateway replica: windowed counters that replicas lease capacity from.
+// SHARED_STATE_BACKEND selects the implementation ("local" for a single replica, "mysql" for a
+// cluster). Kill-switch changes reach other replicas through KillSwitchService's change log.
+public interface SharedStateStore {
+  // Adds up to `requested` to the counter of (key, windowStart) without passing `limit` and
+  // returns how much was granted (0 when the window is exhausted).
+  long acquire(String key, long windowStart, long requested, long limit);
+
+  // False when the state only lives in this JVM, so callers can skip leasing altogether.
+  boolean isDistributed();
+}
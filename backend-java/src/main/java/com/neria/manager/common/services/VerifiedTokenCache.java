@@ -0,0 +1,89 @@
+package com.neria.manager.common.services;
+
+import io.jsonwebtoken.Claims;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class VerifiedTokenCache {
+  private static class CacheEntry {
+    final String token;
+    final Claims claims;
+    final long expiresAt;
+
+    CacheEntry(String token, Claims claims, long expiresAt) {
+      this.token = token;
+      this.claims = claims;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final LinkedHashMap<String, CacheEntry> entries;
+
+  public VerifiedTokenCache(long ttlSeconds, int maxEntries) {
+    this.ttlMillis = ttlSeconds * 1000L;
+    this.maxEntries = maxEntries;
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > VerifiedTokenCache.this.maxEntries;
+          }
+        };
+  }
+
+  public Claims get(String token) {
+    String signature = signatureOf(token);
+    if (signature == null) {
+      return null;
+    }
+    synchronized (entries) {
+      CacheEntry cached = entries.get(signature);
+      if (cached == null) {
+        return null;
+      }
+      if (cached.expiresAt <= now()) {
+        entries.remove(signature);
+        return null;
+      }
+      // The signature is only a lookup key; the full token must match what was verified.
+      return cached.token.equals(token) ? cached.claims : null;
+    }
+  }
+
+  public void put(String token, Claims claims) {
+    String signature = signatureOf(token);
+    if (signature == null || claims == null) {
+      return;
+    }
+    long expiresAt = now() + ttlMillis;
+    Date exp = claims.getExpiration();
+    if (exp != null) {
+      expiresAt = Math.min(expiresAt, exp.getTime());
+    }
+    if (expiresAt <= now()) {
+      return;
+    }
+    synchronized (entries) {
+      entries.put(signature, new CacheEntry(token, claims, expiresAt));
+    }
+  }
+
+  private String signatureOf(String token) {
+    if (ttlMillis <= 0 || maxEntries <= 0 || token == null) {
+      return null;
+    }
+    int dot = token.lastIndexOf('.');
+    if (dot < 0 || dot == token.length() - 1) {
+      return null;
+    }
+    return token.substring(dot + 1);
+  }
+
+  private long now() {
+    return Instant.now().toEpochMilli();
+  }
+}
@@ -2,6 +2,7 @@ package com.neria.manager.policies;
 
 import com.neria.manager.common.entities.Policy;
 import com.neria.manager.common.repos.PolicyRepository;
+import com.neria.manager.runtime.RuntimeContextCache;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,9 +12,11 @@ import org.springframework.stereotype.Service;
 @Service
 public class PoliciesService {
   private final PolicyRepository repository;
+  private final RuntimeContextCache runtimeContextCache;
 
-  public PoliciesService(PolicyRepository repository) {
+  public PoliciesService(PolicyRepository repository, RuntimeContextCache runtimeContextCache) {
     this.repository = repository;
+    this.runtimeContextCache = runtimeContextCache;
   }
 
   public Policy getByTenant(String tenantId) {
@@ -44,24 +47,35 @@ public class PoliciesService {
       policy.setCreatedAt(LocalDateTime.now());
     }
     policy.setMaxRequestsPerMinute(dto.maxRequestsPerMinute != null ? dto.maxRequestsPerMinute : 60);
+    policy.setMaxTokensPerMinute(dto.maxTokensPerMinute != null ? dto.maxTokensPerMinute : 0);
     policy.setMaxTokensPerDay(dto.maxTokensPerDay != null ? dto.maxTokensPerDay : 200000);
     policy.setMaxCostPerDayUsd(
         dto.maxCostPerDayUsd != null ? dto.maxCostPerDayUsd : BigDecimal.ZERO);
     policy.setRedactionEnabled(dto.redactionEnabled != null ? dto.redactionEnabled : true);
+    policy.setResponseCacheTtlSeconds(
+        dto.responseCacheTtlSeconds != null ? Math.max(0, dto.responseCacheTtlSeconds) : 0);
+    policy.setResponseCacheMaxBytes(
+        dto.responseCacheMaxBytes != null ? Math.max(0L, dto.responseCacheMaxBytes) : 0L);
     policy.setMetadata(dto.metadataJson != null ? dto.metadataJson : "{}");
     policy.setUpdatedAt(LocalDateTime.now());
-    return repository.save(policy);
+    Policy saved = repository.save(policy);
+    runtimeContextCache.invalidateTenant(tenantId);
+    return saved;
   }
 
   public void deleteByTenant(String tenantId) {
     repository.deleteByTenantId(tenantId);
+    runtimeContextCache.invalidateTenant(tenantId);
   }
 
   public static class UpdatePolicyRequest {
     public Integer maxRequestsPerMinute;
+    public Integer maxTokensPerMinute;
     public Integer maxTokensPerDay;
     public BigDecimal maxCostPerDayUsd;
     public Boolean redactionEnabled;
+    public Integer responseCacheTtlSeconds;
+    public Long responseCacheMaxBytes;
     public String metadataJson;
   }
 }
@@ -0,0 +1,4 @@
+package com.neria.manager.pricing;
+
+// Published after a pricing model's rates or match key changed, so dependent data can be re-priced.
+public record PricingChangedEvent(String pricingId) {}
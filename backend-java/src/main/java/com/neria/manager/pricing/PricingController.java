@@ -2,8 +2,10 @@ package com.neria.manager.pricing;
 
 import com.neria.manager.common.entities.PricingModel;
 import com.neria.manager.common.security.AuthContext;
+import com.neria.manager.usage.UsageRepricingService;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.Map;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -11,6 +13,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -18,9 +21,12 @@ import org.springframework.web.server.ResponseStatusException;
 @RequestMapping("/pricing")
 public class PricingController {
   private final PricingService pricingService;
+  private final UsageRepricingService repricingService;
 
-  public PricingController(PricingService pricingService) {
+  public PricingController(
+      PricingService pricingService, UsageRepricingService repricingService) {
     this.pricingService = pricingService;
+    this.repricingService = repricingService;
   }
 
   @GetMapping
@@ -45,6 +51,23 @@ public class PricingController {
     return pricingService.update(id, dto);
   }
 
+  @PostMapping("/{id}/reprice")
+  public Map<String, Object> reprice(HttpServletRequest request, @PathVariable("id") String id) {
+    requireAdmin(request);
+    if (pricingService.resolveById(id) == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing not found or disabled");
+    }
+    return repricingService.schedule(id);
+  }
+
+  @GetMapping("/repricing-jobs")
+  public List<Map<String, Object>> repricingJobs(
+      HttpServletRequest request,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    requireAdmin(request);
+    return repricingService.listJobs(limit != null ? limit : 50);
+  }
+
   private AuthContext requireAuth(HttpServletRequest request) {
     AuthContext auth = (AuthContext) request.getAttribute("auth");
     if (auth == null) {
@@ -0,0 +1,97 @@
+package com.neria.manager.pricing;
+
+import com.neria.manager.common.entities.PricingModel;
+import com.neria.manager.common.entities.TenantPricing;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable snapshot of enabled pricing models and tenant assignments. Lookups are keyed by
+// providerType|model, so exact and wildcard resolution are two hash probes at most.
+public final class PricingIndex {
+  static final PricingIndex EMPTY = new PricingIndex(Map.of(), Map.of(), Map.of());
+
+  // Per-token rates precomputed from the BigDecimal columns.
+  public record Rate(PricingModel pricing, double inputPerToken, double outputPerToken) {
+    static Rate of(PricingModel pricing) {
+      return new Rate(
+          pricing,
+          perToken(pricing.getInputCostPer1k()),
+          perToken(pricing.getOutputCostPer1k()));
+    }
+
+    public double cost(long tokensIn, long tokensOut) {
+      double total = tokensIn * inputPerToken + tokensOut * outputPerToken;
+      return Math.round(total * 1_000_000d) / 1_000_000d;
+    }
+
+    private static double perToken(BigDecimal per1k) {
+      return per1k != null ? per1k.doubleValue() / 1000d : 0d;
+    }
+  }
+
+  private final Map<String, Rate> byId;
+  private final Map<String, Rate> global;
+  private final Map<String, Map<String, Rate>> byTenant;
+
+  private PricingIndex(
+      Map<String, Rate> byId, Map<String, Rate> global, Map<String, Map<String, Rate>> byTenant) {
+    this.byId = byId;
+    this.global = global;
+    this.byTenant = byTenant;
+  }
+
+  static PricingIndex build(List<PricingModel> pricing, List<TenantPricing> assignments) {
+    Map<String, Rate> byId = new HashMap<>();
+    Map<String, Rate> global = new HashMap<>();
+    for (PricingModel item : pricing) {
+      if (!item.isEnabled()) {
+        continue;
+      }
+      Rate rate = Rate.of(item);
+      byId.put(item.getId(), rate);
+      global.putIfAbsent(key(item.getProviderType(), item.getModel()), rate);
+    }
+    Map<String, Map<String, Rate>> byTenant = new HashMap<>();
+    for (TenantPricing assignment : assignments) {
+      Rate rate = byId.get(assignment.getPricingId());
+      if (rate == null) {
+        continue;
+      }
+      byTenant
+          .computeIfAbsent(assignment.getTenantId(), id -> new HashMap<>())
+          .putIfAbsent(key(rate.pricing().getProviderType(), rate.pricing().getModel()), rate);
+    }
+    Map<String, Map<String, Rate>> frozen = new HashMap<>();
+    byTenant.forEach((tenantId, rates) -> frozen.put(tenantId, Map.copyOf(rates)));
+    return new PricingIndex(Map.copyOf(byId), Map.copyOf(global), Map.copyOf(frozen));
+  }
+
+  public Rate byId(String pricingId) {
+    return pricingId != null ? byId.get(pricingId) : null;
+  }
+
+  public Rate global(String normalizedProviderType, String model) {
+    return lookup(global, normalizedProviderType, model);
+  }
+
+  public Rate forTenant(String tenantId, String normalizedProviderType, String model) {
+    Map<String, Rate> rates = tenantId != null ? byTenant.get(tenantId) : null;
+    return rates != null ? lookup(rates, normalizedProviderType, model) : null;
+  }
+
+  private static Rate lookup(Map<String, Rate> rates, String providerType, String model) {
+    if (model != null) {
+      Rate exact = rates.get(key(providerType, model));
+      if (exact != null) {
+        return exact;
+      }
+    }
+    return rates.get(key(providerType, "*"));
+  }
+
+  private static String key(String providerType, String model) {
+    return providerType + "|" + model;
+  }
+}
@@ -5,19 +5,36 @@ import com.neria.manager.common.repos.PricingModelRepository;
 import com.neria.manager.common.repos.TenantPricingRepository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class PricingService {
+  private static final Logger log = LoggerFactory.getLogger(PricingService.class);
+
   private final PricingModelRepository pricingRepository;
   private final TenantPricingRepository tenantPricingRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final AtomicLong indexGeneration = new AtomicLong();
+  private volatile PricingIndex index;
 
   public PricingService(
-      PricingModelRepository pricingRepository, TenantPricingRepository tenantPricingRepository) {
+      PricingModelRepository pricingRepository,
+      TenantPricingRepository tenantPricingRepository,
+      ApplicationEventPublisher eventPublisher) {
     this.pricingRepository = pricingRepository;
     this.tenantPricingRepository = tenantPricingRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public List<PricingModel> list() {
@@ -34,11 +51,12 @@ public class PricingService {
     item.setEnabled(dto.enabled != null ? dto.enabled : true);
     item.setCreatedAt(LocalDateTime.now());
     item.setUpdatedAt(LocalDateTime.now());
-    return pricingRepository.save(item);
+    return save(item);
   }
 
   public PricingModel update(String id, UpdatePricingRequest dto) {
     PricingModel item = pricingRepository.findById(id).orElseThrow();
+    RateKey before = RateKey.of(item);
     if (dto.providerType != null) {
       item.setProviderType(normalizeProviderType(dto.providerType));
     }
@@ -47,69 +65,82 @@ public class PricingService {
     if (dto.outputCostPer1k != null) item.setOutputCostPer1k(dto.outputCostPer1k);
     if (dto.enabled != null) item.setEnabled(dto.enabled);
     item.setUpdatedAt(LocalDateTime.now());
-    return pricingRepository.save(item);
+    return saveChanged(item, before);
   }
 
   public PricingModel resolve(String providerType, String model) {
-    String normalized = normalizeProviderType(providerType);
-    PricingModel exact =
-        pricingRepository
-            .findByProviderTypeAndModelAndEnabled(normalized, model, true)
-            .orElse(null);
-    if (exact != null) {
-      return exact;
-    }
-    return pricingRepository
-        .findByProviderTypeAndModelAndEnabled(normalized, "*", true)
-        .orElse(null);
+    return pricing(index().global(normalizeProviderType(providerType), model));
   }
 
   public PricingModel resolveForTenant(String tenantId, String providerType, String model) {
-    String normalized = normalizeProviderType(providerType);
-    List<String> pricingIds =
-        tenantPricingRepository.findByTenantId(tenantId).stream()
-            .map(item -> item.getPricingId())
-            .toList();
-    if (pricingIds.isEmpty()) {
-      return null;
-    }
-
-    PricingModel exact =
-        pricingRepository.findAllById(pricingIds).stream()
-            .filter(item -> item.isEnabled())
-            .filter(item -> normalized.equals(item.getProviderType()))
-            .filter(item -> model.equals(item.getModel()))
-            .findFirst()
-            .orElse(null);
-    if (exact != null) {
-      return exact;
-    }
-    return pricingRepository.findAllById(pricingIds).stream()
-        .filter(item -> item.isEnabled())
-        .filter(item -> normalized.equals(item.getProviderType()))
-        .filter(item -> "*".equals(item.getModel()))
-        .findFirst()
-        .orElse(null);
+    return pricing(index().forTenant(tenantId, normalizeProviderType(providerType), model));
   }
 
   public PricingModel resolveById(String pricingId) {
     if (pricingId == null || pricingId.isBlank()) {
       return null;
     }
-    PricingModel model = pricingRepository.findById(pricingId).orElse(null);
-    if (model == null || !model.isEnabled()) {
-      return null;
-    }
-    return model;
+    return pricing(index().byId(pricingId));
   }
 
   public double calculateCost(PricingModel entry, int tokensIn, int tokensOut) {
     if (entry == null) {
       return 0d;
     }
-    double input = (tokensIn / 1000d) * entry.getInputCostPer1k().doubleValue();
-    double output = (tokensOut / 1000d) * entry.getOutputCostPer1k().doubleValue();
-    return Math.round((input + output) * 1_000_000d) / 1_000_000d;
+    PricingIndex.Rate rate = index().byId(entry.getId());
+    if (rate == null || rate.pricing() != entry) {
+      // Not the indexed instance (loaded elsewhere or edited since); price it as given.
+      rate = PricingIndex.Rate.of(entry);
+    }
+    return rate.cost(tokensIn, tokensOut);
+  }
+
+  // Prices many rows against one index snapshot, so a batch never mixes two pricing versions.
+  // Rows without a matching tenant assignment get NaN, letting callers tell "free" from "unpriced".
+  public double[] calculateCosts(List<CostLine> lines) {
+    PricingIndex snapshot = index();
+    Map<String, PricingIndex.Rate> resolved = new HashMap<>();
+    double[] costs = new double[lines.size()];
+    for (int i = 0; i < costs.length; i++) {
+      CostLine line = lines.get(i);
+      String providerType = normalizeProviderType(line.providerType());
+      PricingIndex.Rate rate =
+          line.pricingId() != null
+              ? snapshot.byId(line.pricingId())
+              : resolved.computeIfAbsent(
+                  line.tenantId() + "|" + providerType + "|" + line.model(),
+                  key -> snapshot.forTenant(line.tenantId(), providerType, line.model()));
+      costs[i] = rate != null ? rate.cost(line.tokensIn(), line.tokensOut()) : Double.NaN;
+    }
+    return costs;
+  }
+
+  // Rebuilds after the surrounding transaction commits so readers never see uncommitted rows.
+  public void refreshIndex() {
+    indexGeneration.incrementAndGet();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              rebuildIndex();
+            }
+          });
+      return;
+    }
+    rebuildIndex();
+  }
+
+  // Picks up pricing edited on other replicas.
+  @Scheduled(
+      initialDelayString = "${PRICING_INDEX_REFRESH_MS:60000}",
+      fixedDelayString = "${PRICING_INDEX_REFRESH_MS:60000}")
+  public void scheduledRefresh() {
+    try {
+      rebuildIndex();
+    } catch (RuntimeException ex) {
+      log.warn("Pricing index refresh failed", ex);
+    }
   }
 
   public PricingModel upsertByModel(UpsertPricingRequest entry) {
@@ -117,11 +148,12 @@ public class PricingService {
     PricingModel existing =
         pricingRepository.findByProviderTypeAndModel(normalized, entry.model).orElse(null);
     if (existing != null) {
+      RateKey before = RateKey.of(existing);
       existing.setInputCostPer1k(entry.inputCostPer1k);
       existing.setOutputCostPer1k(entry.outputCostPer1k);
       existing.setEnabled(true);
       existing.setUpdatedAt(LocalDateTime.now());
-      return pricingRepository.save(existing);
+      return saveChanged(existing, before);
     }
     PricingModel created = new PricingModel();
     created.setId(UUID.randomUUID().toString());
@@ -132,10 +164,45 @@ public class PricingService {
     created.setEnabled(true);
     created.setCreatedAt(LocalDateTime.now());
     created.setUpdatedAt(LocalDateTime.now());
-    return pricingRepository.save(created);
+    return save(created);
   }
 
-  private String normalizeProviderType(String providerType) {
+  private PricingModel save(PricingModel item) {
+    PricingModel saved = pricingRepository.save(item);
+    refreshIndex();
+    return saved;
+  }
+
+  // Historical usage is only re-priced when something that affects cost actually changed.
+  private PricingModel saveChanged(PricingModel item, RateKey before) {
+    PricingModel saved = save(item);
+    if (!before.equals(RateKey.of(saved))) {
+      eventPublisher.publishEvent(new PricingChangedEvent(saved.getId()));
+    }
+    return saved;
+  }
+
+  private PricingIndex index() {
+    PricingIndex current = index;
+    return current != null ? current : rebuildIndex();
+  }
+
+  private synchronized PricingIndex rebuildIndex() {
+    long generation = indexGeneration.get();
+    PricingIndex built =
+        PricingIndex.build(pricingRepository.findAll(), tenantPricingRepository.findAll());
+    // A rebuild that overlapped a pricing write may have read old rows; let the next one win.
+    if (generation == indexGeneration.get() || index == null) {
+      index = built;
+    }
+    return built;
+  }
+
+  private PricingModel pricing(PricingIndex.Rate rate) {
+    return rate != null ? rate.pricing() : null;
+  }
+
+  public static String normalizeProviderType(String providerType) {
     String normalized = providerType == null ? "" : providerType.toLowerCase();
     if (List.of("azure", "azure_openai", "azure-openai").contains(normalized)) {
       return "azure-openai";
@@ -149,6 +216,34 @@ public class PricingService {
     return normalized.isBlank() ? "openai" : normalized;
   }
 
+  private record RateKey(
+      String providerType,
+      String model,
+      BigDecimal inputCostPer1k,
+      BigDecimal outputCostPer1k,
+      boolean enabled) {
+    static RateKey of(PricingModel item) {
+      return new RateKey(
+          item.getProviderType(),
+          item.getModel(),
+          strip(item.getInputCostPer1k()),
+          strip(item.getOutputCostPer1k()),
+          item.isEnabled());
+    }
+
+    private static BigDecimal strip(BigDecimal value) {
+      return value != null ? value.stripTrailingZeros() : null;
+    }
+  }
+
+  public record CostLine(
+      String tenantId,
+      String providerType,
+      String model,
+      String pricingId,
+      long tokensIn,
+      long tokensOut) {}
+
   public static class CreatePricingRequest {
     public String providerType;
     public String model;
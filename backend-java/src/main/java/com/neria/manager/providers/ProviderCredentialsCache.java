@@ -0,0 +1,127 @@
+package com.neria.manager.providers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neria.manager.common.entities.Provider;
+import com.neria.manager.common.services.EncryptionService;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.stereotype.Service;
+
+// Parsed provider credentials keyed by provider id. An entry is only reused while the provider's
+// updatedAt and ciphertext still match, so a rotated secret is never served from memory.
+@Service
+public class ProviderCredentialsCache {
+  private static final TypeReference<Map<String, Object>> CREDENTIALS = new TypeReference<>() {};
+
+  private static class CacheEntry {
+    final LocalDateTime updatedAt;
+    final String encryptedCredentials;
+    final Map<String, Object> credentials;
+    final long expiresAt;
+
+    CacheEntry(
+        LocalDateTime updatedAt,
+        String encryptedCredentials,
+        Map<String, Object> credentials,
+        long expiresAt) {
+      this.updatedAt = updatedAt;
+      this.encryptedCredentials = encryptedCredentials;
+      this.credentials = credentials;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean matches(Provider provider) {
+      return Objects.equals(updatedAt, provider.getUpdatedAt())
+          && Objects.equals(encryptedCredentials, provider.getEncryptedCredentials());
+    }
+  }
+
+  private final EncryptionService encryptionService;
+  private final ObjectMapper objectMapper;
+  private final long ttlSeconds;
+  private final int maxEntries;
+  private final LinkedHashMap<String, CacheEntry> entries;
+
+  public ProviderCredentialsCache(EncryptionService encryptionService, ObjectMapper objectMapper) {
+    this.encryptionService = encryptionService;
+    this.objectMapper = objectMapper;
+    this.ttlSeconds =
+        Long.parseLong(System.getenv().getOrDefault("PROVIDER_CREDENTIALS_CACHE_TTL", "300"));
+    this.maxEntries =
+        Integer.parseInt(
+            System.getenv().getOrDefault("PROVIDER_CREDENTIALS_CACHE_MAX_ENTRIES", "1000"));
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  public Map<String, Object> get(Provider provider) {
+    if (provider == null) {
+      return Map.of();
+    }
+    if (ttlSeconds <= 0 || maxEntries <= 0) {
+      return decrypt(provider);
+    }
+    synchronized (entries) {
+      CacheEntry cached = entries.get(provider.getId());
+      if (cached != null && cached.expiresAt > now() && cached.matches(provider)) {
+        return cached.credentials;
+      }
+    }
+    Map<String, Object> credentials = decrypt(provider);
+    CacheEntry entry =
+        new CacheEntry(
+            provider.getUpdatedAt(),
+            provider.getEncryptedCredentials(),
+            credentials,
+            now() + ttlSeconds * 1000L);
+    synchronized (entries) {
+      entries.put(provider.getId(), entry);
+    }
+    return credentials;
+  }
+
+  public void invalidate(String providerId) {
+    if (providerId == null) {
+      return;
+    }
+    synchronized (entries) {
+      entries.remove(providerId);
+    }
+  }
+
+  // The decrypted JSON document only ever lives in a byte buffer that is zeroed after parsing;
+  // the individual values end up as Strings because the adapters consume them that way.
+  private Map<String, Object> decrypt(Provider provider) {
+    String encrypted = provider.getEncryptedCredentials();
+    if (encrypted == null || encrypted.isBlank()) {
+      return Map.of();
+    }
+    byte[] plaintext = encryptionService.decryptBytes(encrypted);
+    try {
+      if (plaintext.length == 0) {
+        return Map.of();
+      }
+      Map<String, Object> parsed = objectMapper.readValue(plaintext, CREDENTIALS);
+      return Collections.unmodifiableMap(parsed);
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Invalid credentials format, must be JSON");
+    } finally {
+      Arrays.fill(plaintext, (byte) 0);
+    }
+  }
+
+  private long now() {
+    return Instant.now().toEpochMilli();
+  }
+}
@@ -3,11 +3,13 @@ package com.neria.manager.providers;
 import com.neria.manager.common.entities.Provider;
 import com.neria.manager.common.repos.ProviderRepository;
 import com.neria.manager.common.services.EncryptionService;
+import com.neria.manager.runtime.RuntimeContextCache;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.springframework.stereotype.Service;
 
@@ -16,10 +18,18 @@ public class ProvidersService {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   private final ProviderRepository repository;
   private final EncryptionService encryptionService;
+  private final RuntimeContextCache runtimeContextCache;
+  private final ProviderCredentialsCache credentialsCache;
 
-  public ProvidersService(ProviderRepository repository, EncryptionService encryptionService) {
+  public ProvidersService(
+      ProviderRepository repository,
+      EncryptionService encryptionService,
+      RuntimeContextCache runtimeContextCache,
+      ProviderCredentialsCache credentialsCache) {
     this.repository = repository;
     this.encryptionService = encryptionService;
+    this.runtimeContextCache = runtimeContextCache;
+    this.credentialsCache = credentialsCache;
   }
 
   public List<Provider> list(String tenantId) {
@@ -45,7 +55,9 @@ public class ProvidersService {
     provider.setEnabled(dto.enabled != null ? dto.enabled : true);
     provider.setCreatedAt(LocalDateTime.now());
     provider.setUpdatedAt(LocalDateTime.now());
-    return repository.save(provider);
+    Provider saved = repository.save(provider);
+    runtimeContextCache.invalidateTenant(tenantId);
+    return saved;
   }
 
   public Provider update(String tenantId, String id, UpdateProviderRequest dto) {
@@ -68,7 +80,10 @@ public class ProvidersService {
       provider.setConfig(config);
     }
     provider.setUpdatedAt(LocalDateTime.now());
-    return repository.save(provider);
+    Provider saved = repository.save(provider);
+    credentialsCache.invalidate(saved.getId());
+    runtimeContextCache.invalidateTenant(tenantId);
+    return saved;
   }
 
   public Provider getByTenantAndId(String tenantId, String id) {
@@ -86,6 +101,10 @@ public class ProvidersService {
     return encryptionService.decrypt(provider.getEncryptedCredentials());
   }
 
+  public Map<String, Object> getCredentials(Provider provider) {
+    return credentialsCache.get(provider);
+  }
+
   private String normalizeJson(Object value) {
     if (value == null) {
       return null;
@@ -0,0 +1,36 @@
+package com.neria.manager.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+// SHA-256 of a scope string plus the payload serialised with sorted keys, so two requests that
+// differ only in field order hash the same. Used by the response cache and request coalescing.
+final class PayloadHashes {
+  // Fields that change how the answer is delivered or attributed, not what it says.
+  private static final List<String> IGNORED_FIELDS = List.of("stream", "stream_options", "user");
+  private static final ObjectWriter CANONICAL_WRITER =
+      new ObjectMapper().writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+  private PayloadHashes() {}
+
+  // Null when the payload cannot be serialised; callers then skip caching or coalescing.
+  static String hash(String scope, Map<String, Object> payload) {
+    Map<String, Object> normalized = payload != null ? new HashMap<>(payload) : new HashMap<>();
+    IGNORED_FIELDS.forEach(normalized::remove);
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((scope + "|").getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of()
+          .formatHex(digest.digest(CANONICAL_WRITER.writeValueAsBytes(normalized)));
+    } catch (Exception ex) {
+      return null;
+    }
+  }
+}
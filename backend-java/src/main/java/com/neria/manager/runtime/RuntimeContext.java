@@ -0,0 +1,42 @@
+package com.neria.manager.runtime;
+
+import com.neria.manager.common.entities.Policy;
+import com.neria.manager.common.entities.Provider;
+import com.neria.manager.common.entities.Tenant;
+import com.neria.manager.common.entities.TenantServiceConfig;
+import java.util.Map;
+
+// Everything the runtime needs about a tenant + service, loaded together and shared read-only.
+public final class RuntimeContext {
+  private final Tenant tenant;
+  private final TenantServiceConfig serviceConfig;
+  private final Map<String, Provider> providers;
+  private final Policy policy;
+
+  RuntimeContext(
+      Tenant tenant,
+      TenantServiceConfig serviceConfig,
+      Map<String, Provider> providers,
+      Policy policy) {
+    this.tenant = tenant;
+    this.serviceConfig = serviceConfig;
+    this.providers = providers;
+    this.policy = policy;
+  }
+
+  public Tenant getTenant() {
+    return tenant;
+  }
+
+  public TenantServiceConfig getServiceConfig() {
+    return serviceConfig;
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  public Provider getProvider(String providerId) {
+    return providerId != null ? providers.get(providerId) : null;
+  }
+}
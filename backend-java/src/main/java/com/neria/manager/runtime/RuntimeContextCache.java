@@ -0,0 +1,178 @@
+package com.neria.manager.runtime;
+
+import com.neria.manager.common.entities.Policy;
+import com.neria.manager.common.entities.Provider;
+import com.neria.manager.common.entities.Tenant;
+import com.neria.manager.common.entities.TenantServiceConfig;
+import com.neria.manager.common.repos.PolicyRepository;
+import com.neria.manager.common.repos.ProviderRepository;
+import com.neria.manager.common.repos.TenantRepository;
+import com.neria.manager.common.repos.TenantServiceConfigRepository;
+import com.neria.manager.common.services.BlockingTaskExecutor;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// Invalidation only reaches this JVM. Other replicas keep serving a changed tenant, service or
+// policy until their entry is reloaded, at most RUNTIME_CONTEXT_CACHE_TTL seconds later.
+@Service
+public class RuntimeContextCache {
+  private static final Logger log = LoggerFactory.getLogger(RuntimeContextCache.class);
+
+  private static class CacheEntry {
+    final RuntimeContext context;
+    final long loadedAt;
+    final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    CacheEntry(RuntimeContext context, long loadedAt) {
+      this.context = context;
+      this.loadedAt = loadedAt;
+    }
+  }
+
+  private final TenantRepository tenantRepository;
+  private final TenantServiceConfigRepository configRepository;
+  private final ProviderRepository providerRepository;
+  private final PolicyRepository policyRepository;
+  private final BlockingTaskExecutor taskExecutor;
+  private final long ttlMs;
+  private final int maxEntries;
+  private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+  // Bumped on every invalidation so a load that raced with a write is not cached.
+  private final AtomicLong generation = new AtomicLong();
+
+  public RuntimeContextCache(
+      TenantRepository tenantRepository,
+      TenantServiceConfigRepository configRepository,
+      ProviderRepository providerRepository,
+      PolicyRepository policyRepository,
+      BlockingTaskExecutor taskExecutor) {
+    this.tenantRepository = tenantRepository;
+    this.configRepository = configRepository;
+    this.providerRepository = providerRepository;
+    this.policyRepository = policyRepository;
+    this.taskExecutor = taskExecutor;
+    this.ttlMs =
+        Long.parseLong(System.getenv().getOrDefault("RUNTIME_CONTEXT_CACHE_TTL", "60")) * 1000L;
+    this.maxEntries =
+        Integer.parseInt(
+            System.getenv().getOrDefault("RUNTIME_CONTEXT_CACHE_MAX_ENTRIES", "10000"));
+  }
+
+  public RuntimeContext get(String tenantId, String serviceCode) {
+    String code = serviceCode != null ? serviceCode.trim() : "";
+    if (ttlMs <= 0) {
+      return load(tenantId, code);
+    }
+    String key = key(tenantId, code);
+    CacheEntry cached = entries.get(key);
+    long now = Instant.now().toEpochMilli();
+    if (cached != null) {
+      long age = now - cached.loadedAt;
+      if (age < ttlMs) {
+        // Refresh ahead in the background once most of the TTL has passed.
+        if (age > ttlMs * 3 / 4 && cached.refreshing.compareAndSet(false, true)) {
+          taskExecutor.execute(() -> refresh(tenantId, code));
+        }
+        return cached.context;
+      }
+    }
+    return refresh(tenantId, code);
+  }
+
+  public void invalidateTenant(String tenantId) {
+    if (tenantId == null) {
+      return;
+    }
+    generation.incrementAndGet();
+    String prefix = tenantId + "|";
+    entries.keySet().removeIf(key -> key.startsWith(prefix));
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warm() {
+    if (ttlMs <= 0) {
+      return;
+    }
+    taskExecutor.execute(
+        () -> {
+          try {
+            List<TenantServiceConfig> configs = configRepository.findAll();
+            for (TenantServiceConfig config : configs) {
+              get(config.getTenantId(), config.getServiceCode());
+            }
+            log.info("Runtime context cache warmed entries={}", entries.size());
+          } catch (RuntimeException ex) {
+            log.warn("Runtime context cache warm-up failed", ex);
+          }
+        });
+  }
+
+  private RuntimeContext refresh(String tenantId, String serviceCode) {
+    long startGeneration = generation.get();
+    RuntimeContext context = load(tenantId, serviceCode);
+    // The service code comes from the caller. One without a service config loads exactly like no
+    // code at all, so it shares that entry instead of adding one per made-up code.
+    String key = key(tenantId, context.getServiceConfig() != null ? serviceCode : "");
+    if (generation.get() == startGeneration && hasRoomFor(key)) {
+      entries.put(key, new CacheEntry(context, Instant.now().toEpochMilli()));
+    }
+    return context;
+  }
+
+  // Expired entries are only replaced on their next request, so they are swept once the cache is
+  // full. If it is still full after that, the context is served without being cached.
+  private boolean hasRoomFor(String key) {
+    if (entries.size() < maxEntries || entries.containsKey(key)) {
+      return true;
+    }
+    long expiredBefore = Instant.now().toEpochMilli() - ttlMs;
+    entries.values().removeIf(entry -> entry.loadedAt < expiredBefore);
+    return entries.size() < maxEntries;
+  }
+
+  private RuntimeContext load(String tenantId, String serviceCode) {
+    Tenant tenant = tenantRepository.findById(tenantId).orElse(null);
+    TenantServiceConfig serviceConfig =
+        serviceCode.isEmpty()
+            ? null
+            : configRepository.findByTenantIdAndServiceCode(tenantId, serviceCode).orElse(null);
+    Map<String, Provider> providers =
+        providerRepository.findByTenantId(tenantId).stream()
+            .collect(Collectors.toUnmodifiableMap(Provider::getId, Function.identity()));
+
+    Policy policy;
+    if (serviceConfig != null && serviceConfig.getPolicyId() != null) {
+      policy =
+          serviceConfig.getPolicyId().isBlank()
+              ? null
+              : policyRepository
+                  .findById(serviceConfig.getPolicyId())
+                  .filter(item -> tenantId.equals(item.getTenantId()))
+                  .orElse(null);
+    } else {
+      policy = policyRepository.findByTenantId(tenantId).orElse(null);
+    }
+
+    return new RuntimeContext(tenant, serviceConfig, providers, policy);
+  }
+
+  private String key(String tenantId, String serviceCode) {
+    return tenantId + "|" + serviceCode;
+  }
+}
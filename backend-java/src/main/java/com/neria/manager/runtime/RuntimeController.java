@@ -2,7 +2,11 @@ package com.neria.manager.runtime;
 
 import com.neria.manager.common.security.AuthContext;
 import com.neria.manager.common.security.AuthUtils;
+import com.neria.manager.common.services.RateLimitService;
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,9 +22,17 @@ public class RuntimeController {
   }
 
   @PostMapping("/execute")
-  public Object execute(HttpServletRequest request, @RequestBody ExecuteRequest dto) {
+  public ResponseEntity<Map<String, Object>> execute(
+      HttpServletRequest request, @RequestBody ExecuteRequest dto) {
     AuthContext auth = AuthUtils.requireAuth(request);
     String tenantId = AuthUtils.resolveTenantId(auth, request);
-    return runtimeService.execute(tenantId, dto);
+    AtomicReference<RateLimitService.Decision> rateLimit = new AtomicReference<>();
+    Map<String, Object> result =
+        runtimeService.execute(tenantId, auth.getApiKeyId(), dto, rateLimit::set);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (rateLimit.get() != null) {
+      response.headers(rateLimit.get().toHeaders());
+    }
+    return response.body(result);
   }
 }
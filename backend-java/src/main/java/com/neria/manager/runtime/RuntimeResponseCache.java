@@ -0,0 +1,187 @@
+package com.neria.manager.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Exact-match cache for deterministic completions (temperature 0), enabled per policy through
+// responseCacheTtlSeconds. Responses are kept as UTF-8 JSON in direct buffers, outside the heap,
+// so a large cache adds nothing to GC work. Each tenant has its own LRU and byte budget, and
+// RESPONSE_CACHE_MAX_BYTES caps the total across tenants.
+@Component
+public class RuntimeResponseCache {
+  private static final class Entry {
+    final ByteBuffer body;
+    final long expiresAt;
+    final long sizeBytes;
+
+    Entry(ByteBuffer body, long expiresAt, long sizeBytes) {
+      this.body = body;
+      this.expiresAt = expiresAt;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+
+  private static final class Partition {
+    final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    long bytes;
+  }
+
+  private final ConcurrentHashMap<String, Partition> partitions = new ConcurrentHashMap<>();
+  private final AtomicLong totalBytes = new AtomicLong();
+  private final ObjectMapper objectMapper;
+  private final Counter hits;
+  private final Counter misses;
+  private final long maxBytes;
+  private final long defaultTenantMaxBytes;
+
+  public RuntimeResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+    this.objectMapper = objectMapper;
+    // Entries are direct buffers, which count against -XX:MaxDirectMemorySize (by default the
+    // same as -Xmx). Size that flag to hold RESPONSE_CACHE_MAX_BYTES on top of what the HTTP and
+    // JDBC clients use, or puts fail with OutOfMemoryError: Direct buffer memory.
+    this.maxBytes =
+        Long.parseLong(System.getenv().getOrDefault("RESPONSE_CACHE_MAX_BYTES", "268435456"));
+    this.defaultTenantMaxBytes =
+        Long.parseLong(
+            System.getenv().getOrDefault("RESPONSE_CACHE_TENANT_MAX_BYTES", "16777216"));
+    this.hits =
+        Counter.builder("runtime.response.cache")
+            .tag("result", "hit")
+            .description("Runtime requests answered from the response cache")
+            .register(meterRegistry);
+    this.misses =
+        Counter.builder("runtime.response.cache")
+            .tag("result", "miss")
+            .description("Cacheable runtime requests that had to call the provider")
+            .register(meterRegistry);
+    Gauge.builder("runtime.response.cache.bytes", totalBytes, AtomicLong::get)
+        .description("Off-heap bytes held by the response cache")
+        .register(meterRegistry);
+  }
+
+  // Null when the request is not deterministic. Redaction is part of the key because it changes
+  // the prompt the provider actually sees.
+  public String key(
+      String providerId, String model, Map<String, Object> payload, boolean redactionEnabled) {
+    if (maxBytes <= 0
+        || payload == null
+        || !(payload.get("temperature") instanceof Number temperature)
+        || temperature.doubleValue() != 0d) {
+      return null;
+    }
+    return PayloadHashes.hash(providerId + "|" + model + "|" + redactionEnabled, payload);
+  }
+
+  // Returns a fresh copy of the cached output, or null on a miss.
+  public Object get(String tenantId, String key) {
+    Partition partition = partitions.get(tenantId);
+    byte[] bytes = null;
+    if (partition != null) {
+      synchronized (partition) {
+        Entry entry = partition.entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+          remove(partition, key);
+        } else if (entry != null) {
+          bytes = new byte[entry.body.capacity()];
+          entry.body.duplicate().clear().get(bytes);
+        }
+      }
+    }
+    if (bytes == null) {
+      misses.increment();
+      return null;
+    }
+    try {
+      Object output = objectMapper.readValue(bytes, Object.class);
+      hits.increment();
+      return output;
+    } catch (Exception ex) {
+      misses.increment();
+      return null;
+    }
+  }
+
+  // tenantMaxBytes of 0 falls back to RESPONSE_CACHE_TENANT_MAX_BYTES. The tenant's own least
+  // recently used entries make room within its budget. When the global cap would still be
+  // exceeded, the response is simply not stored and nothing is evicted, so other tenants filling
+  // the cache cannot empty this tenant's partition either.
+  public void put(
+      String tenantId, String key, Object output, int ttlSeconds, long tenantMaxBytes) {
+    if (ttlSeconds <= 0 || output == null) {
+      return;
+    }
+    long budget = tenantMaxBytes > 0 ? tenantMaxBytes : defaultTenantMaxBytes;
+    byte[] bytes;
+    try {
+      bytes = objectMapper.writeValueAsBytes(output);
+    } catch (Exception ex) {
+      return;
+    }
+    long sizeBytes = bytes.length + 2L * key.length();
+    if (sizeBytes > budget || sizeBytes > maxBytes) {
+      return;
+    }
+    Partition partition = partitions.computeIfAbsent(tenantId, id -> new Partition());
+    synchronized (partition) {
+      remove(partition, key);
+      // Room freed within the tenant's budget counts towards the global cap too.
+      long reclaimable = Math.max(0L, partition.bytes + sizeBytes - budget);
+      if (totalBytes.get() - reclaimable + sizeBytes > maxBytes) {
+        return;
+      }
+      Iterator<Map.Entry<String, Entry>> eldest = partition.entries.entrySet().iterator();
+      while (partition.bytes + sizeBytes > budget && eldest.hasNext()) {
+        Entry evicted = eldest.next().getValue();
+        partition.bytes -= evicted.sizeBytes;
+        totalBytes.addAndGet(-evicted.sizeBytes);
+        eldest.remove();
+      }
+      ByteBuffer body = ByteBuffer.allocateDirect(bytes.length);
+      body.put(bytes).flip();
+      partition.entries.put(
+          key, new Entry(body, System.currentTimeMillis() + ttlSeconds * 1000L, sizeBytes));
+      partition.bytes += sizeBytes;
+      totalBytes.addAndGet(sizeBytes);
+    }
+  }
+
+  // Direct buffers are released once unreachable, so dropping expired entries is what returns
+  // their memory.
+  @Scheduled(
+      initialDelayString = "${RESPONSE_CACHE_SWEEP_MS:60000}",
+      fixedDelayString = "${RESPONSE_CACHE_SWEEP_MS:60000}")
+  public void evictExpired() {
+    long now = System.currentTimeMillis();
+    for (Partition partition : partitions.values()) {
+      synchronized (partition) {
+        Iterator<Entry> iterator = partition.entries.values().iterator();
+        while (iterator.hasNext()) {
+          Entry entry = iterator.next();
+          if (entry.expiresAt <= now) {
+            partition.bytes -= entry.sizeBytes;
+            totalBytes.addAndGet(-entry.sizeBytes);
+            iterator.remove();
+          }
+        }
+      }
+    }
+  }
+
+  private void remove(Partition partition, String key) {
+    Entry removed = partition.entries.remove(key);
+    if (removed != null) {
+      partition.bytes -= removed.sizeBytes;
+      totalBytes.addAndGet(-removed.sizeBytes);
+    }
+  }
+}
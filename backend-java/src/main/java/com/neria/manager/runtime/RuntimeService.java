@@ -1,36 +1,43 @@
 package com.neria.manager.runtime;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neria.manager.adapters.AdaptersService;
+import com.neria.manager.adapters.ChatCompletionStream;
+import com.neria.manager.adapters.ProviderCircuitBreakers;
 import com.neria.manager.adapters.ProviderInvocationResult;
+import com.neria.manager.adapters.ProviderUnavailableException;
+import com.neria.manager.adapters.TokenEstimates;
 import com.neria.manager.audit.AuditService;
 import com.neria.manager.common.entities.AuditEvent;
 import com.neria.manager.common.entities.Policy;
+import com.neria.manager.common.entities.PricingModel;
 import com.neria.manager.common.entities.Provider;
 import com.neria.manager.common.entities.Tenant;
 import com.neria.manager.common.entities.UsageEvent;
+import com.neria.manager.common.services.BlockingTaskExecutor;
 import com.neria.manager.common.services.KillSwitchService;
 import com.neria.manager.common.services.RateLimitService;
-import com.neria.manager.policies.PoliciesService;
 import com.neria.manager.pricing.PricingService;
 import com.neria.manager.providers.ProvidersService;
 import com.neria.manager.redaction.RedactionService;
-import com.neria.manager.tenants.TenantsService;
 import com.neria.manager.common.entities.TenantServiceConfig;
-import com.neria.manager.common.repos.TenantServiceConfigRepository;
 import com.neria.manager.usage.UsageService;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 public class RuntimeService {
-  private final TenantsService tenantsService;
+  private final RuntimeContextCache runtimeContextCache;
   private final ProvidersService providersService;
-  private final PoliciesService policiesService;
   private final RedactionService redactionService;
   private final AdaptersService adaptersService;
   private final UsageService usageService;
@@ -38,12 +45,18 @@ public class RuntimeService {
   private final RateLimitService rateLimitService;
   private final KillSwitchService killSwitchService;
   private final PricingService pricingService;
-  private final TenantServiceConfigRepository tenantServiceConfigRepository;
+  private final BlockingTaskExecutor blockingTaskExecutor;
+  private final RuntimeResponseCache responseCache;
+  private final RuntimeSingleFlight singleFlight;
+  private final ObjectMapper objectMapper;
+  private final int apiKeyRequestsPerMinute;
+  private final long tpmMaxWaitMs;
+  private final int defaultCompletionTokens;
+  private final double failoverHealthThreshold;
 
   public RuntimeService(
-      TenantsService tenantsService,
+      RuntimeContextCache runtimeContextCache,
       ProvidersService providersService,
-      PoliciesService policiesService,
       RedactionService redactionService,
       AdaptersService adaptersService,
       UsageService usageService,
@@ -51,10 +64,12 @@ public class RuntimeService {
       RateLimitService rateLimitService,
       KillSwitchService killSwitchService,
       PricingService pricingService,
-      TenantServiceConfigRepository tenantServiceConfigRepository) {
-    this.tenantsService = tenantsService;
+      BlockingTaskExecutor blockingTaskExecutor,
+      RuntimeResponseCache responseCache,
+      RuntimeSingleFlight singleFlight,
+      ObjectMapper objectMapper) {
+    this.runtimeContextCache = runtimeContextCache;
     this.providersService = providersService;
-    this.policiesService = policiesService;
     this.redactionService = redactionService;
     this.adaptersService = adaptersService;
     this.usageService = usageService;
@@ -62,12 +77,46 @@ public class RuntimeService {
     this.rateLimitService = rateLimitService;
     this.killSwitchService = killSwitchService;
     this.pricingService = pricingService;
-    this.tenantServiceConfigRepository = tenantServiceConfigRepository;
+    this.blockingTaskExecutor = blockingTaskExecutor;
+    this.responseCache = responseCache;
+    this.singleFlight = singleFlight;
+    this.objectMapper = objectMapper;
+    // Optional cap per API key on top of the policy limit; 0 disables it.
+    this.apiKeyRequestsPerMinute =
+        Integer.parseInt(System.getenv().getOrDefault("RATE_LIMIT_API_KEY_RPM", "0"));
+    this.tpmMaxWaitMs = Long.parseLong(System.getenv().getOrDefault("TPM_MAX_WAIT_MS", "2000"));
+    this.defaultCompletionTokens =
+        Integer.parseInt(System.getenv().getOrDefault("TPM_DEFAULT_COMPLETION_TOKENS", "256"));
+    this.failoverHealthThreshold =
+        Double.parseDouble(System.getenv().getOrDefault("FAILOVER_HEALTH_THRESHOLD", "0.3"));
   }
 
   public Map<String, Object> execute(String tenantId, ExecuteRequest dto) {
+    return run(tenantId, null, dto, null, null);
+  }
+
+  public Map<String, Object> execute(
+      String tenantId,
+      String apiKeyId,
+      ExecuteRequest dto,
+      Consumer<RateLimitService.Decision> onRateLimit) {
+    return run(tenantId, apiKeyId, dto, null, onRateLimit);
+  }
+
+  public Map<String, Object> executeStream(
+      String tenantId, ExecuteRequest dto, Consumer<String> onDelta) {
+    return run(tenantId, null, dto, onDelta, null);
+  }
+
+  private Map<String, Object> run(
+      String tenantId,
+      String apiKeyId,
+      ExecuteRequest dto,
+      Consumer<String> onDelta,
+      Consumer<RateLimitService.Decision> onRateLimit) {
     try {
-      Tenant tenant = tenantsService.getById(tenantId);
+      RuntimeContext context = runtimeContextCache.get(tenantId, dto.serviceCode);
+      Tenant tenant = context.getTenant();
       if (tenant == null) {
         throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Tenant not found");
       }
@@ -78,13 +127,7 @@ public class RuntimeService {
         throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tenant is disabled");
       }
 
-      TenantServiceConfig serviceConfig = null;
-      if (dto.serviceCode != null && !dto.serviceCode.isBlank()) {
-        serviceConfig =
-            tenantServiceConfigRepository
-                .findByTenantIdAndServiceCode(tenantId, dto.serviceCode.trim())
-                .orElse(null);
-      }
+      TenantServiceConfig serviceConfig = context.getServiceConfig();
 
       String resolvedProviderId = dto.providerId;
       if (serviceConfig != null
@@ -97,21 +140,20 @@ public class RuntimeService {
         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provider is required");
       }
 
-      Provider provider = providersService.getByTenantAndId(tenantId, resolvedProviderId);
+      Provider provider = context.getProvider(resolvedProviderId);
       if (provider == null || !provider.isEnabled()) {
         throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Provider not found or disabled");
       }
 
-      Policy policy =
-          serviceConfig != null && serviceConfig.getPolicyId() != null
-              ? policiesService.getByIdForTenant(tenantId, serviceConfig.getPolicyId())
-              : policiesService.getByTenant(tenantId);
+      Policy policy = context.getPolicy();
       if (policy == null) {
         throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Policy is required before runtime execution");
       }
 
-      if (policy.getMaxRequestsPerMinute() > 0) {
-        rateLimitService.consume(tenantId, policy.getMaxRequestsPerMinute());
+      RateLimitService.Decision rateLimit =
+          rateLimitService.consumeAll(rateLimits(tenantId, apiKeyId, serviceConfig, policy));
+      if (rateLimit != null && onRateLimit != null) {
+        onRateLimit.accept(rateLimit);
       }
 
       UsageService.Totals totals =
@@ -127,43 +169,94 @@ public class RuntimeService {
         throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cost limit exceeded");
       }
 
+      // Keyed on the payload as received, so a hit also skips redaction.
+      String cacheKey =
+          policy.getResponseCacheTtlSeconds() > 0
+              ? responseCache.key(
+                  provider.getId(), dto.model, dto.payload, policy.isRedactionEnabled())
+              : null;
+      if (cacheKey != null) {
+        Object cached = responseCache.get(tenantId, cacheKey);
+        if (cached != null) {
+          return serveShared(tenantId, dto, provider, cached, onDelta, "cached");
+        }
+      }
+
       Map<String, Object> payload =
           policy.isRedactionEnabled() ? redactionService.redact(dto.payload) : dto.payload;
 
-      String credentials = providersService.getDecryptedCredentials(provider);
-      ProviderInvocationResult response;
-      try {
-        response =
-            adaptersService.invokeProvider(provider.getType(), credentials, dto.model, payload);
-      } catch (IllegalArgumentException ex) {
-        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
-      } catch (IllegalStateException ex) {
-        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, ex.getMessage(), ex);
+      // Identical non-streaming requests share one in-flight provider call. Streaming callers
+      // always get their own, since deltas cannot be written to another request's client.
+      String flightKey =
+          onDelta == null
+              ? PayloadHashes.hash(
+                  provider.getId()
+                      + "|"
+                      + dto.model
+                      + "|"
+                      + dto.serviceCode
+                      + "|"
+                      + policy.isRedactionEnabled(),
+                  dto.payload)
+              : null;
+      RuntimeSingleFlight.Result<AdaptersService.Invocation> flight =
+          singleFlight.execute(
+              flightKey,
+              () ->
+                  callProviders(
+                      tenantId,
+                      context,
+                      serviceConfig,
+                      policy,
+                      provider,
+                      dto.model,
+                      payload,
+                      onDelta));
+      AdaptersService.Invocation invocation = flight.value();
+      ProviderInvocationResult response = invocation.result();
+      Provider servedBy = context.getProvider(invocation.servedBy().providerId());
+      if (flight.shared()) {
+        return serveShared(tenantId, dto, servedBy, response.getOutput(), null, "coalesced");
+      }
+      if (cacheKey != null) {
+        responseCache.put(
+            tenantId,
+            cacheKey,
+            response.getOutput(),
+            policy.getResponseCacheTtlSeconds(),
+            policy.getResponseCacheMaxBytes());
       }
 
-      var pricing =
-          serviceConfig != null && serviceConfig.getPricingId() != null
-              ? pricingService.resolveById(serviceConfig.getPricingId())
-              : pricingService.resolveForTenant(tenantId, provider.getType(), dto.model);
+      PricingModel pricing = resolvePricing(tenantId, serviceConfig, servedBy, dto.model);
       double computedCost =
           pricingService.calculateCost(pricing, response.getTokensIn(), response.getTokensOut());
 
       UsageEvent usage = new UsageEvent();
       usage.setTenantId(tenantId);
-      usage.setProviderId(provider.getId());
+      usage.setProviderId(servedBy.getId());
       usage.setModel(dto.model);
       usage.setServiceCode(dto.serviceCode != null ? dto.serviceCode : null);
       usage.setTokensIn(response.getTokensIn());
       usage.setTokensOut(response.getTokensOut());
       usage.setCostUsd(BigDecimal.valueOf(computedCost));
       usageService.record(usage);
+      if (invocation.hedged()) {
+        recordHedgeUsage(tenantId, dto, serviceConfig, context, invocation, payload);
+      }
 
       AuditEvent audit = new AuditEvent();
       audit.setTenantId(tenantId);
       audit.setAction("runtime.execute");
       audit.setStatus("accepted");
       Map<String, Object> acceptedMeta = new java.util.HashMap<>();
-      acceptedMeta.put("providerId", provider.getId());
+      acceptedMeta.put("providerId", servedBy.getId());
+      if (!servedBy.getId().equals(provider.getId())) {
+        acceptedMeta.put("failoverFrom", provider.getId());
+      }
+      if (invocation.hedged()) {
+        acceptedMeta.put("hedged", true);
+        acceptedMeta.put("hedgeWon", invocation.hedgeWon());
+      }
       if (dto.requestId != null) {
         acceptedMeta.put("requestId", dto.requestId);
       }
@@ -193,9 +286,278 @@ public class RuntimeService {
     }
   }
 
+  // Primary, then failover, each possibly hedged. IllegalArgumentException from an adapter is the
+  // caller's fault (400); anything else becomes 502, or 503 when no provider would take the call.
+  private AdaptersService.Invocation callProviders(
+      String tenantId,
+      RuntimeContext context,
+      TenantServiceConfig serviceConfig,
+      Policy policy,
+      Provider provider,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    // Failover is only safe while nothing has reached the client.
+    AtomicBoolean streamed = new AtomicBoolean(false);
+    Consumer<String> trackedDelta =
+        onDelta == null
+            ? null
+            : delta -> {
+              streamed.set(true);
+              onDelta.accept(delta);
+            };
+    AdaptersService.Invocation invocation = null;
+    IllegalStateException failure = null;
+    for (Provider candidate : route(context, serviceConfig, provider)) {
+      try {
+        invocation =
+            invoke(
+                tenantId,
+                policy,
+                candidate,
+                hedgeProvider(context, serviceConfig, candidate),
+                model,
+                payload,
+                trackedDelta);
+        break;
+      } catch (IllegalArgumentException ex) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+      } catch (IllegalStateException ex) {
+        failure = ex;
+        if (streamed.get() || !ProviderCircuitBreakers.isProviderFault(ex)) {
+          break;
+        }
+      }
+    }
+    if (invocation == null) {
+      HttpStatus status =
+          failure instanceof ProviderUnavailableException
+              ? HttpStatus.SERVICE_UNAVAILABLE
+              : HttpStatus.BAD_GATEWAY;
+      throw new ResponseStatusException(status, failure.getMessage(), failure);
+    }
+    return invocation;
+  }
+
+  // Answers from the response cache ("cached") or from another caller's in-flight call
+  // ("coalesced") cost nothing upstream. The caller's tenant still gets a usage row, with zero
+  // tokens and cost, and the audit entry carries the reason. Streaming callers get the whole
+  // answer as a single delta.
+  private Map<String, Object> serveShared(
+      String tenantId,
+      ExecuteRequest dto,
+      Provider provider,
+      Object output,
+      Consumer<String> onDelta,
+      String reason) {
+    if (onDelta != null) {
+      String content = ChatCompletionStream.extractContent(output);
+      if (content != null && !content.isEmpty()) {
+        onDelta.accept(content);
+      }
+    }
+
+    UsageEvent usage = new UsageEvent();
+    usage.setTenantId(tenantId);
+    usage.setProviderId(provider.getId());
+    usage.setModel(dto.model);
+    usage.setServiceCode(dto.serviceCode);
+    usage.setTokensIn(0);
+    usage.setTokensOut(0);
+    usage.setCostUsd(BigDecimal.ZERO);
+    usageService.record(usage);
+
+    AuditEvent audit = new AuditEvent();
+    audit.setTenantId(tenantId);
+    audit.setAction("runtime.execute");
+    audit.setStatus("accepted");
+    Map<String, Object> acceptedMeta = new java.util.HashMap<>();
+    acceptedMeta.put("providerId", provider.getId());
+    acceptedMeta.put(reason, true);
+    if (dto.requestId != null) {
+      acceptedMeta.put("requestId", dto.requestId);
+    }
+    if (dto.model != null) {
+      acceptedMeta.put("model", dto.model);
+    }
+    audit.setMetadata(toJson(acceptedMeta));
+    auditService.record(audit);
+
+    Map<String, Object> result = new java.util.HashMap<>();
+    result.put("requestId", dto.requestId);
+    result.put("output", output);
+    return result;
+  }
+
+  // Primary first, then the service's failover provider. When the primary's health score has
+  // dropped below FAILOVER_HEALTH_THRESHOLD and the failover looks healthier, it goes first.
+  private List<Provider> route(
+      RuntimeContext context, TenantServiceConfig serviceConfig, Provider primary) {
+    Provider failover =
+        serviceConfig != null ? context.getProvider(serviceConfig.getFailoverProviderId()) : null;
+    if (failover == null || !failover.isEnabled() || failover.getId().equals(primary.getId())) {
+      return List.of(primary);
+    }
+    double primaryScore = adaptersService.healthScore(primary.getId());
+    if (primaryScore < failoverHealthThreshold
+        && adaptersService.healthScore(failover.getId()) > primaryScore) {
+      return List.of(failover, primary);
+    }
+    return List.of(primary, failover);
+  }
+
+  // With hedging enabled on the service, the duplicate request goes to the failover provider
+  // when there is one (an alternate deployment), otherwise to the same provider again.
+  private Provider hedgeProvider(
+      RuntimeContext context, TenantServiceConfig serviceConfig, Provider candidate) {
+    if (serviceConfig == null || !serviceConfig.isHedgingEnabled()) {
+      return null;
+    }
+    Provider failover = context.getProvider(serviceConfig.getFailoverProviderId());
+    if (failover != null && failover.isEnabled() && !failover.getId().equals(candidate.getId())) {
+      return failover;
+    }
+    return candidate;
+  }
+
+  private AdaptersService.Invocation invoke(
+      String tenantId,
+      Policy policy,
+      Provider provider,
+      Provider hedgeProvider,
+      String model,
+      Map<String, Object> payload,
+      Consumer<String> onDelta) {
+    // Hold the estimated tokens against the tenant's per-provider TPM budget before calling
+    // upstream, so a burst of large prompts is queued here instead of rejected by the provider.
+    RateLimitService.Reservation tokenReservation =
+        policy.getMaxTokensPerMinute() > 0
+            ? rateLimitService.reserveTokens(
+                "tpm:" + tenantId + "|" + provider.getId(),
+                policy.getMaxTokensPerMinute(),
+                estimateTokens(payload),
+                tpmMaxWaitMs)
+            : null;
+
+    AdaptersService.Invocation invocation = null;
+    try {
+      BlockingTaskExecutor.Permit permit = blockingTaskExecutor.acquire(tenantId);
+      try {
+        invocation =
+            adaptersService.invoke(
+                target(provider),
+                hedgeProvider != null ? target(hedgeProvider) : null,
+                model,
+                payload,
+                onDelta);
+      } finally {
+        permit.close();
+      }
+    } finally {
+      if (tokenReservation != null && invocation == null) {
+        tokenReservation.release();
+      }
+    }
+    if (tokenReservation != null) {
+      // Both attempts of a hedged call were sent upstream, so both count against the budget.
+      ProviderInvocationResult response = invocation.result();
+      long used = (long) response.getTokensIn() + response.getTokensOut();
+      if (invocation.hedged()) {
+        AttemptTokens extra = extraAttemptTokens(invocation, payload);
+        used += (long) extra.in() + extra.out();
+      }
+      tokenReservation.reconcile(used);
+    }
+    return invocation;
+  }
+
+  private record AttemptTokens(int in, int out) {}
+
+  // Tokens of the attempt that did not serve a hedged call. If it was cancelled before
+  // finishing, its prompt is estimated and its output taken from what it had streamed.
+  private AttemptTokens extraAttemptTokens(
+      AdaptersService.Invocation invocation, Map<String, Object> payload) {
+    ProviderInvocationResult extra = invocation.extraResult();
+    if (extra != null) {
+      return new AttemptTokens(extra.getTokensIn(), extra.getTokensOut());
+    }
+    return new AttemptTokens(
+        (int) TokenEstimates.prompt(payload),
+        (int) TokenEstimates.completion(invocation.extraStreamedChars()));
+  }
+
+  private AdaptersService.Target target(Provider provider) {
+    return new AdaptersService.Target(
+        provider.getId(), provider.getType(), providersService.getCredentials(provider));
+  }
+
+  // A service-level pricingId overrides the tenant assignments; blank means "not priced".
+  private PricingModel resolvePricing(
+      String tenantId, TenantServiceConfig serviceConfig, Provider provider, String model) {
+    return serviceConfig != null && serviceConfig.getPricingId() != null
+        ? pricingService.resolveById(serviceConfig.getPricingId())
+        : pricingService.resolveForTenant(tenantId, provider.getType(), model);
+  }
+
+  // The attempt that lost a hedge race is billed by the provider too, so it gets its own usage
+  // row flagged as a hedge.
+  private void recordHedgeUsage(
+      String tenantId,
+      ExecuteRequest dto,
+      TenantServiceConfig serviceConfig,
+      RuntimeContext context,
+      AdaptersService.Invocation invocation,
+      Map<String, Object> payload) {
+    Provider provider = context.getProvider(invocation.extra().providerId());
+    AttemptTokens extra = extraAttemptTokens(invocation, payload);
+    int tokensIn = extra.in();
+    int tokensOut = extra.out();
+    double cost =
+        pricingService.calculateCost(
+            resolvePricing(tenantId, serviceConfig, provider, dto.model), tokensIn, tokensOut);
+    UsageEvent usage = new UsageEvent();
+    usage.setTenantId(tenantId);
+    usage.setProviderId(provider.getId());
+    usage.setModel(dto.model);
+    usage.setServiceCode(dto.serviceCode);
+    usage.setTokensIn(tokensIn);
+    usage.setTokensOut(tokensOut);
+    usage.setCostUsd(BigDecimal.valueOf(cost));
+    usage.setHedge(true);
+    usageService.record(usage);
+  }
+
+  // The policy limit applies per tenant, or per service when the service has its own policy.
+  private List<RateLimitService.Limit> rateLimits(
+      String tenantId, String apiKeyId, TenantServiceConfig serviceConfig, Policy policy) {
+    List<RateLimitService.Limit> limits = new ArrayList<>(2);
+    boolean servicePolicy =
+        serviceConfig != null
+            && serviceConfig.getPolicyId() != null
+            && !serviceConfig.getPolicyId().isBlank();
+    String policyKey =
+        servicePolicy
+            ? "service:" + tenantId + "|" + serviceConfig.getServiceCode()
+            : "tenant:" + tenantId;
+    limits.add(new RateLimitService.Limit(policyKey, policy.getMaxRequestsPerMinute()));
+    if (apiKeyId != null && apiKeyRequestsPerMinute > 0) {
+      limits.add(new RateLimitService.Limit("apikey:" + apiKeyId, apiKeyRequestsPerMinute));
+    }
+    return limits;
+  }
+
+  // Prompt text at about 4 characters per token plus the completion the caller asked for.
+  private long estimateTokens(Map<String, Object> payload) {
+    if (payload == null) {
+      return defaultCompletionTokens;
+    }
+    long requested = TokenEstimates.maxOutput(payload);
+    return TokenEstimates.prompt(payload) + (requested > 0 ? requested : defaultCompletionTokens);
+  }
+
   private String toJson(Object value) {
     try {
-      return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(value);
+      return objectMapper.writeValueAsString(value);
     } catch (Exception ex) {
       return "{}";
     }
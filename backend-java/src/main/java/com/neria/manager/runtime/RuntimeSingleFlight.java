@@ -0,0 +1,69 @@
+package com.neria.manager.runtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+// Single-flight coalescing: while a call for a key is running, callers with the same key wait for
+// it and share its outcome (value or exception) instead of starting their own. The flight ends
+// when the leader returns, so later callers start a fresh call. RUNTIME_SINGLE_FLIGHT=false
+// turns it off.
+@Component
+public class RuntimeSingleFlight {
+  public record Result<T>(T value, boolean shared) {}
+
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> flights =
+      new ConcurrentHashMap<>();
+  private final Counter coalesced;
+  private final boolean enabled;
+
+  public RuntimeSingleFlight(MeterRegistry meterRegistry) {
+    this.enabled =
+        Boolean.parseBoolean(System.getenv().getOrDefault("RUNTIME_SINGLE_FLIGHT", "true"));
+    this.coalesced =
+        Counter.builder("runtime.single.flight.coalesced")
+            .description("Runtime requests that shared another request's provider call")
+            .register(meterRegistry);
+    Gauge.builder("runtime.single.flight.inflight", flights, ConcurrentHashMap::size)
+        .description("Provider calls currently shared through single-flight")
+        .register(meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> Result<T> execute(String key, Supplier<T> call) {
+    if (!enabled || key == null) {
+      return new Result<>(call.get(), false);
+    }
+    CompletableFuture<Object> created = new CompletableFuture<>();
+    CompletableFuture<Object> existing = flights.putIfAbsent(key, created);
+    if (existing != null) {
+      coalesced.increment();
+      try {
+        return new Result<>((T) existing.join(), true);
+      } catch (CompletionException ex) {
+        if (ex.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        if (ex.getCause() instanceof Error cause) {
+          throw cause;
+        }
+        throw ex;
+      }
+    }
+    try {
+      T value = call.get();
+      created.complete(value);
+      return new Result<>(value, false);
+    } catch (RuntimeException | Error ex) {
+      created.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      flights.remove(key, created);
+    }
+  }
+}
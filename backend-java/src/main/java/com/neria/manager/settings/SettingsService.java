@@ -20,7 +20,10 @@ import com.neria.manager.common.repos.TenantRepository;
 import com.neria.manager.common.repos.TenantServiceConfigRepository;
 import com.neria.manager.common.repos.TenantServiceEndpointRepository;
 import com.neria.manager.common.repos.TenantServiceUserRepository;
+import com.neria.manager.common.services.ApiKeyCache;
 import com.neria.manager.common.services.KillSwitchService;
+import com.neria.manager.pricing.PricingService;
+import com.neria.manager.runtime.RuntimeContextCache;
 import java.util.List;
 import java.util.Map;
 import org.springframework.http.HttpStatus;
@@ -39,6 +42,9 @@ public class SettingsService {
   private final TenantServiceConfigRepository tenantServiceConfigRepository;
   private final TenantServiceEndpointRepository tenantServiceEndpointRepository;
   private final TenantServiceUserRepository tenantServiceUserRepository;
+  private final RuntimeContextCache runtimeContextCache;
+  private final ApiKeyCache apiKeyCache;
+  private final PricingService pricingService;
   private final ObjectMapper objectMapper;
 
   public SettingsService(
@@ -52,6 +58,9 @@ public class SettingsService {
       TenantServiceConfigRepository tenantServiceConfigRepository,
       TenantServiceEndpointRepository tenantServiceEndpointRepository,
       TenantServiceUserRepository tenantServiceUserRepository,
+      RuntimeContextCache runtimeContextCache,
+      ApiKeyCache apiKeyCache,
+      PricingService pricingService,
       ObjectMapper objectMapper) {
     this.killSwitchService = killSwitchService;
     this.settingsRepository = settingsRepository;
@@ -63,6 +72,9 @@ public class SettingsService {
     this.tenantServiceConfigRepository = tenantServiceConfigRepository;
     this.tenantServiceEndpointRepository = tenantServiceEndpointRepository;
     this.tenantServiceUserRepository = tenantServiceUserRepository;
+    this.runtimeContextCache = runtimeContextCache;
+    this.apiKeyCache = apiKeyCache;
+    this.pricingService = pricingService;
     this.objectMapper = objectMapper;
   }
 
@@ -159,8 +171,12 @@ public class SettingsService {
       tenantServiceConfigRepository.deleteAll();
       tenantPricingRepository.deleteAll();
       tenantsRepository.deleteAll();
+      pricingService.refreshIndex();
     }
 
+    runtimeContextCache.invalidateAll();
+    // Cached verifications would keep purged keys (or keys of purged tenants) working until TTL.
+    apiKeyCache.invalidateAll();
     return Map.of("cleared", summary);
   }
 
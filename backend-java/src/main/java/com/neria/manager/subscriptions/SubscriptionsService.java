@@ -19,6 +19,7 @@ import com.neria.manager.common.repos.TenantServiceConfigRepository;
 import com.neria.manager.common.repos.TenantServiceEndpointRepository;
 import com.neria.manager.common.repos.TenantServiceUserRepository;
 import com.neria.manager.common.services.EmailService;
+import com.neria.manager.runtime.RuntimeContextCache;
 import com.neria.manager.tenants.TenantsService;
 import com.stripe.Stripe;
 import com.stripe.model.checkout.Session;
@@ -58,6 +59,7 @@ public class SubscriptionsService {
   private final TenantServiceUserRepository tenantServiceUserRepository;
   private final TenantsService tenantsService;
   private final EmailService emailService;
+  private final RuntimeContextCache runtimeContextCache;
 
   public SubscriptionsService(
       SubscriptionRepository subscriptionRepository,
@@ -72,7 +74,8 @@ public class SubscriptionsService {
       TenantServiceEndpointRepository tenantServiceEndpointRepository,
       TenantServiceUserRepository tenantServiceUserRepository,
       TenantsService tenantsService,
-      EmailService emailService) {
+      EmailService emailService,
+      RuntimeContextCache runtimeContextCache) {
     this.subscriptionRepository = subscriptionRepository;
     this.subscriptionServiceRepository = subscriptionServiceRepository;
     this.subscriptionHistoryRepository = subscriptionHistoryRepository;
@@ -86,6 +89,7 @@ public class SubscriptionsService {
     this.tenantServiceUserRepository = tenantServiceUserRepository;
     this.tenantsService = tenantsService;
     this.emailService = emailService;
+    this.runtimeContextCache = runtimeContextCache;
   }
 
   private LocalDateTime buildPeriodEnd(LocalDateTime start, String period) {
@@ -640,6 +644,7 @@ public class SubscriptionsService {
     String serviceCode = assignment.getServiceCode();
     subscriptionServiceRepository.delete(assignment);
     tenantServiceConfigRepository.deleteByTenantIdAndServiceCode(tenantId, serviceCode);
+    runtimeContextCache.invalidateTenant(tenantId);
     tenantServiceEndpointRepository.deleteByTenantIdAndServiceCode(tenantId, serviceCode);
     tenantServiceUserRepository.deleteByTenantIdAndServiceCode(tenantId, serviceCode);
     tenantServiceApiKeysService.deleteByTenantAndServiceCode(tenantId, serviceCode);
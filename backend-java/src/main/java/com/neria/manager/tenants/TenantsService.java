@@ -3,6 +3,8 @@ package com.neria.manager.tenants;
 import com.neria.manager.auth.TenantAuthService;
 import com.neria.manager.common.entities.Tenant;
 import com.neria.manager.common.repos.TenantRepository;
+import com.neria.manager.common.services.KillSwitchService;
+import com.neria.manager.runtime.RuntimeContextCache;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -12,10 +14,18 @@ import org.springframework.stereotype.Service;
 public class TenantsService {
   private final TenantRepository repository;
   private final TenantAuthService tenantAuthService;
+  private final RuntimeContextCache runtimeContextCache;
+  private final KillSwitchService killSwitchService;
 
-  public TenantsService(TenantRepository repository, TenantAuthService tenantAuthService) {
+  public TenantsService(
+      TenantRepository repository,
+      TenantAuthService tenantAuthService,
+      RuntimeContextCache runtimeContextCache,
+      KillSwitchService killSwitchService) {
     this.repository = repository;
     this.tenantAuthService = tenantAuthService;
+    this.runtimeContextCache = runtimeContextCache;
+    this.killSwitchService = killSwitchService;
   }
 
   public List<Tenant> list(String tenantId) {
@@ -39,7 +49,11 @@ public class TenantsService {
     }
     tenant.setCreatedAt(LocalDateTime.now());
     tenant.setUpdatedAt(LocalDateTime.now());
-    return repository.save(tenant);
+    Tenant saved = repository.save(tenant);
+    if (saved.isKillSwitch()) {
+      killSwitchService.setTenantKillSwitch(saved.getId(), true);
+    }
+    return saved;
   }
 
   public Tenant update(String tenantId, UpdateTenantRequest dto) {
@@ -68,7 +82,12 @@ public class TenantsService {
     }
     applyProfileFields(tenant, dto);
     tenant.setUpdatedAt(LocalDateTime.now());
-    return repository.save(tenant);
+    Tenant saved = repository.save(tenant);
+    runtimeContextCache.invalidateTenant(tenantId);
+    if (dto.killSwitch != null) {
+      killSwitchService.setTenantKillSwitch(tenantId, saved.isKillSwitch());
+    }
+    return saved;
   }
 
   public Tenant updateSelf(String tenantId, UpdateTenantSelfRequest dto) {
@@ -95,7 +114,10 @@ public class TenantsService {
     Tenant tenant = repository.findById(tenantId).orElseThrow();
     tenant.setKillSwitch(enabled);
     tenant.setUpdatedAt(LocalDateTime.now());
-    return repository.save(tenant);
+    Tenant saved = repository.save(tenant);
+    runtimeContextCache.invalidateTenant(tenantId);
+    killSwitchService.setTenantKillSwitch(tenantId, enabled);
+    return saved;
   }
 
   public Tenant getById(String tenantId) {
@@ -0,0 +1,194 @@
+package com.neria.manager.tenantservices;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TenantServiceEndpointCache {
+  public static class Entry {
+    final String tenantId;
+    final String endpointId;
+    final String body;
+    final String etag;
+    final String lastModified;
+    final long expiresAt;
+    final long sizeBytes;
+
+    Entry(
+        String tenantId,
+        String endpointId,
+        String body,
+        String etag,
+        String lastModified,
+        long expiresAt,
+        long sizeBytes) {
+      this.tenantId = tenantId;
+      this.endpointId = endpointId;
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expiresAt = expiresAt;
+      this.sizeBytes = sizeBytes;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    public boolean isFresh() {
+      return expiresAt > Instant.now().toEpochMilli();
+    }
+
+    boolean canRevalidate() {
+      return etag != null || lastModified != null;
+    }
+  }
+
+  private final long defaultTtlSeconds;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+
+  public TenantServiceEndpointCache() {
+    this.defaultTtlSeconds =
+        Long.parseLong(System.getenv().getOrDefault("ENDPOINT_CACHE_TTL", "300"));
+    this.maxBytes =
+        Long.parseLong(System.getenv().getOrDefault("ENDPOINT_CACHE_MAX_BYTES", "67108864"));
+  }
+
+  // Returns stale entries too while they carry a validator, so callers can send a conditional GET.
+  public Entry get(String tenantId, String endpointId, String url, Map<String, String> headers) {
+    if (maxBytes <= 0 || tenantId == null || endpointId == null) {
+      return null;
+    }
+    String key = key(tenantId, endpointId, url, headers);
+    synchronized (entries) {
+      Entry cached = entries.get(key);
+      if (cached == null) {
+        return null;
+      }
+      if (!cached.isFresh() && !cached.canRevalidate()) {
+        remove(key);
+        return null;
+      }
+      return cached;
+    }
+  }
+
+  public void put(
+      String tenantId,
+      String endpointId,
+      Integer endpointTtlSeconds,
+      String url,
+      Map<String, String> headers,
+      String body,
+      String etag,
+      String lastModified,
+      String cacheControl) {
+    if (maxBytes <= 0 || tenantId == null || endpointId == null || body == null) {
+      return;
+    }
+    String key = key(tenantId, endpointId, url, headers);
+    long ttlSeconds = resolveTtlSeconds(endpointTtlSeconds, cacheControl);
+    // Strings are UTF-16 in memory; this is an estimate of the retained size, not the wire size.
+    long sizeBytes = 2L * (key.length() + body.length());
+    synchronized (entries) {
+      remove(key);
+      if (ttlSeconds < 0 || sizeBytes > maxBytes) {
+        return;
+      }
+      if (ttlSeconds == 0 && etag == null && lastModified == null) {
+        return;
+      }
+      Entry entry =
+          new Entry(
+              tenantId,
+              endpointId,
+              body,
+              etag,
+              lastModified,
+              Instant.now().toEpochMilli() + ttlSeconds * 1000L,
+              sizeBytes);
+      entries.put(key, entry);
+      totalBytes += sizeBytes;
+      evict();
+    }
+  }
+
+  public void invalidateEndpoint(String tenantId, String endpointId) {
+    if (tenantId == null || endpointId == null) {
+      return;
+    }
+    synchronized (entries) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (tenantId.equals(entry.tenantId) && endpointId.equals(entry.endpointId)) {
+          totalBytes -= entry.sizeBytes;
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  // -1 disables caching, 0 stores the response but always revalidates it.
+  private long resolveTtlSeconds(Integer endpointTtlSeconds, String cacheControl) {
+    long ttl = endpointTtlSeconds != null ? endpointTtlSeconds : defaultTtlSeconds;
+    if (ttl <= 0) {
+      return -1;
+    }
+    if (cacheControl == null || cacheControl.isBlank()) {
+      return ttl;
+    }
+    for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+      String value = directive.trim();
+      if (value.equals("no-store")) {
+        return -1;
+      }
+      if (value.equals("no-cache")) {
+        ttl = 0;
+      } else if (value.startsWith("max-age=")) {
+        try {
+          ttl = Math.min(ttl, Math.max(0, Long.parseLong(value.substring("max-age=".length()))));
+        } catch (NumberFormatException ex) {
+          // ignore malformed max-age
+        }
+      }
+    }
+    return ttl;
+  }
+
+  private void evict() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Entry eldest = iterator.next();
+      totalBytes -= eldest.sizeBytes;
+      iterator.remove();
+    }
+  }
+
+  private void remove(String key) {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      totalBytes -= removed.sizeBytes;
+    }
+  }
+
+  private String key(String tenantId, String endpointId, String url, Map<String, String> headers) {
+    String headerKey = headers == null || headers.isEmpty() ? "" : new TreeMap<>(headers).toString();
+    return tenantId + "|" + endpointId + "|" + url + "|" + headerKey;
+  }
+}
@@ -48,6 +48,8 @@ public class TenantServicesController {
         dto.systemPrompt,
         dto.apiBaseUrl,
         dto.providerId,
+        dto.failoverProviderId,
+        dto.hedgingEnabled,
         dto.pricingId,
         dto.policyId);
   }
@@ -142,6 +144,8 @@ public class TenantServicesController {
     public String systemPrompt;
     public String apiBaseUrl;
     public String providerId;
+    public String failoverProviderId;
+    public Boolean hedgingEnabled;
     public String pricingId;
     public String policyId;
   }
@@ -18,6 +18,7 @@ import com.neria.manager.common.repos.TenantServiceConfigRepository;
 import com.neria.manager.common.repos.TenantServiceEndpointRepository;
 import com.neria.manager.common.repos.TenantServiceUserRepository;
 import com.neria.manager.auth.TenantServiceApiKeysService;
+import com.neria.manager.runtime.RuntimeContextCache;
 import com.neria.manager.tenants.TenantsService;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -43,6 +44,8 @@ public class TenantServicesService {
   private final ChatUserRepository chatUsersRepository;
   private final TenantServiceApiKeysService tenantServiceApiKeysService;
   private final TenantsService tenantsService;
+  private final TenantServiceEndpointCache endpointCache;
+  private final RuntimeContextCache runtimeContextCache;
   private final ObjectMapper objectMapper;
 
   public TenantServicesService(
@@ -55,6 +58,8 @@ public class TenantServicesService {
       ChatUserRepository chatUsersRepository,
       TenantServiceApiKeysService tenantServiceApiKeysService,
       TenantsService tenantsService,
+      TenantServiceEndpointCache endpointCache,
+      RuntimeContextCache runtimeContextCache,
       ObjectMapper objectMapper) {
     this.configRepository = configRepository;
     this.endpointRepository = endpointRepository;
@@ -65,6 +70,8 @@ public class TenantServicesService {
     this.chatUsersRepository = chatUsersRepository;
     this.tenantServiceApiKeysService = tenantServiceApiKeysService;
     this.tenantsService = tenantsService;
+    this.endpointCache = endpointCache;
+    this.runtimeContextCache = runtimeContextCache;
     this.objectMapper = objectMapper;
   }
 
@@ -95,11 +102,15 @@ public class TenantServicesService {
               config.setSystemPrompt(null);
               config.setApiBaseUrl(null);
               config.setProviderId(null);
+              config.setFailoverProviderId(null);
+              config.setHedgingEnabled(false);
               config.setPricingId(null);
               config.setPolicyId(null);
               config.setCreatedAt(LocalDateTime.now());
               config.setUpdatedAt(LocalDateTime.now());
-              return configRepository.save(config);
+              TenantServiceConfig saved = configRepository.save(config);
+              runtimeContextCache.invalidateTenant(tenantId);
+              return saved;
             });
   }
 
@@ -170,6 +181,8 @@ public class TenantServicesService {
       summary.configStatus = config != null ? config.getStatus() : DEFAULT_STATUS;
       summary.systemPrompt = config != null ? config.getSystemPrompt() : null;
       summary.providerId = config != null ? config.getProviderId() : null;
+      summary.failoverProviderId = config != null ? config.getFailoverProviderId() : null;
+      summary.hedgingEnabled = config != null && config.isHedgingEnabled();
       summary.pricingId = config != null ? config.getPricingId() : null;
       summary.policyId = config != null ? config.getPolicyId() : null;
       summary.serviceApiKey = subscription != null ? serviceApiKeys.get(service.getCode()) : null;
@@ -187,6 +200,8 @@ public class TenantServicesService {
       String systemPrompt,
       String apiBaseUrl,
       String providerId,
+      String failoverProviderId,
+      Boolean hedgingEnabled,
       String pricingId,
       String policyId) {
     ensureTenant(tenantId);
@@ -207,6 +222,13 @@ public class TenantServicesService {
       String trimmed = providerId.trim();
       config.setProviderId(trimmed.isEmpty() ? null : trimmed);
     }
+    if (failoverProviderId != null) {
+      String trimmed = failoverProviderId.trim();
+      config.setFailoverProviderId(trimmed.isEmpty() ? null : trimmed);
+    }
+    if (hedgingEnabled != null) {
+      config.setHedgingEnabled(hedgingEnabled);
+    }
     if (pricingId != null) {
       String trimmed = pricingId.trim();
       config.setPricingId(trimmed.isEmpty() ? null : trimmed);
@@ -216,7 +238,9 @@ public class TenantServicesService {
       config.setPolicyId(trimmed.isEmpty() ? null : trimmed);
     }
     config.setUpdatedAt(LocalDateTime.now());
-    return configRepository.save(config);
+    TenantServiceConfig saved = configRepository.save(config);
+    runtimeContextCache.invalidateTenant(tenantId);
+    return saved;
   }
 
   public TenantServiceConfig getConfig(String tenantId, String serviceCode) {
@@ -260,6 +284,7 @@ public class TenantServicesService {
             ? payload.responsePath.trim()
             : null);
     created.setEnabled(payload.enabled == null || payload.enabled);
+    created.setCacheTtlSeconds(payload.cacheTtlSeconds);
     created.setCreatedAt(LocalDateTime.now());
     created.setUpdatedAt(LocalDateTime.now());
     TenantServiceEndpoint saved = endpointRepository.save(created);
@@ -307,8 +332,13 @@ public class TenantServicesService {
     if (payload.enabled != null) {
       endpoint.setEnabled(payload.enabled);
     }
+    if (payload.cacheTtlSeconds != null || payload.cacheTtlSecondsSet) {
+      endpoint.setCacheTtlSeconds(payload.cacheTtlSeconds);
+    }
     endpoint.setUpdatedAt(LocalDateTime.now());
-    return toEndpointResponse(endpointRepository.save(endpoint));
+    TenantServiceEndpoint saved = endpointRepository.save(endpoint);
+    endpointCache.invalidateEndpoint(tenantId, saved.getId());
+    return toEndpointResponse(saved);
   }
 
   public Map<String, Object> deleteEndpoint(String tenantId, String serviceCode, String id) {
@@ -319,6 +349,7 @@ public class TenantServicesService {
             .findByIdAndTenantIdAndServiceCode(id, tenantId, normalized)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Endpoint not found"));
     endpointRepository.deleteById(endpoint.getId());
+    endpointCache.invalidateEndpoint(tenantId, endpoint.getId());
     return Map.of("deleted", true);
   }
 
@@ -501,6 +532,7 @@ public class TenantServicesService {
     response.updatedAt = endpoint.getUpdatedAt();
     response.headers = parseJson(endpoint.getHeaders());
     response.responsePath = endpoint.getResponsePath();
+    response.cacheTtlSeconds = endpoint.getCacheTtlSeconds();
     return response;
   }
 
@@ -541,6 +573,8 @@ public class TenantServicesService {
     public String configStatus;
     public String systemPrompt;
     public String providerId;
+    public String failoverProviderId;
+    public boolean hedgingEnabled;
     public String pricingId;
     public String policyId;
     public String serviceApiKey;
@@ -558,6 +592,7 @@ public class TenantServicesService {
     public String baseUrl;
     public Map<String, String> headers;
     public String responsePath;
+    public Integer cacheTtlSeconds;
     public boolean enabled;
     public LocalDateTime createdAt;
     public LocalDateTime updatedAt;
@@ -611,6 +646,7 @@ public class TenantServicesService {
     public String baseUrl;
     public Map<String, String> headers;
     public String responsePath;
+    public Integer cacheTtlSeconds;
     public Boolean enabled;
   }
 
@@ -624,6 +660,8 @@ public class TenantServicesService {
     public boolean headersSet;
     public String responsePath;
     public boolean responsePathSet;
+    public Integer cacheTtlSeconds;
+    public boolean cacheTtlSecondsSet;
     public Boolean enabled;
   }
 }
@@ -0,0 +1,145 @@
+package com.neria.manager.usage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+
+// In-memory per-tenant, per-day token and cost totals. Cost is kept in micro-dollars so it adds
+// up exactly like the usage_events.costUsd column (scale 6).
+//
+// Each day total is a database base (every replica's rows created before a cutoff second) plus
+// this replica's own writes at or after the cutoff, kept per second of the day. UsageService
+// re-reads the base every DAILY_USAGE_RESYNC_MS, so another replica's usage shows up here within
+// that interval plus the write-behind delay; between resyncs each replica only sees its own
+// traffic on top of the last base.
+@Component
+public class DailyUsageCounters {
+  private static final int RETAINED_DAYS = 2;
+
+  private record DayKey(String tenantId, LocalDate date) {}
+
+  private record Base(long tokens, long costMicros, int cutoffSecond) {}
+
+  private static class Bucket {
+    final LongAdder tokens = new LongAdder();
+    final LongAdder costMicros = new LongAdder();
+  }
+
+  private static class Counter {
+    volatile Base base = new Base(0L, 0L, 0);
+    final ConcurrentHashMap<Integer, Bucket> recent = new ConcurrentHashMap<>();
+  }
+
+  private final ConcurrentHashMap<DayKey, Counter> counters = new ConcurrentHashMap<>();
+  private volatile LocalDate trackedFrom;
+
+  public void start(LocalDate today) {
+    this.trackedFrom = today.minusDays(RETAINED_DAYS - 1L);
+  }
+
+  public LocalDate getTrackedFrom() {
+    return trackedFrom;
+  }
+
+  public boolean covers(LocalDate date) {
+    LocalDate from = trackedFrom;
+    return from != null && date != null && !date.isBefore(from);
+  }
+
+  public void add(String tenantId, LocalDateTime createdAt, long tokens, BigDecimal costUsd) {
+    if (tenantId == null || createdAt == null || !covers(createdAt.toLocalDate())) {
+      return;
+    }
+    Counter counter =
+        counters.computeIfAbsent(
+            new DayKey(tenantId, createdAt.toLocalDate()), key -> new Counter());
+    int second = createdAt.toLocalTime().toSecondOfDay();
+    Bucket bucket = counter.recent.computeIfAbsent(second, key -> new Bucket());
+    bucket.tokens.add(tokens);
+    bucket.costMicros.add(toMicros(costUsd));
+  }
+
+  // Installs database totals for rows created before cutoffSecond of the given day. Tenants
+  // without rows get a zero base. Local buckets below both the previous and the new cutoff are
+  // dropped; the ones between the two cutoffs stay until the next resync for readers still
+  // holding the old base, and a cutoff held back by uncommitted writes keeps its buckets.
+  public void resync(LocalDate date, int cutoffSecond, Map<String, long[]> totalsByTenant) {
+    for (Map.Entry<String, long[]> entry : totalsByTenant.entrySet()) {
+      counters.computeIfAbsent(new DayKey(entry.getKey(), date), key -> new Counter());
+    }
+    counters.forEach(
+        (key, counter) -> {
+          if (!key.date().equals(date)) {
+            return;
+          }
+          long[] totals = totalsByTenant.getOrDefault(key.tenantId(), new long[2]);
+          int dropBelow = Math.min(counter.base.cutoffSecond(), cutoffSecond);
+          counter.base = new Base(totals[0], totals[1], cutoffSecond);
+          counter.recent.keySet().removeIf(second -> second < dropBelow);
+        });
+  }
+
+  public UsageService.Totals get(String tenantId, LocalDate date) {
+    Counter counter = counters.get(new DayKey(tenantId, date));
+    if (counter == null) {
+      return new UsageService.Totals(0, 0d);
+    }
+    return toTotals(counter);
+  }
+
+  public Map<String, UsageService.Totals> getAll(LocalDate date) {
+    Map<String, UsageService.Totals> totals = new java.util.HashMap<>();
+    counters.forEach(
+        (key, counter) -> {
+          if (key.date().equals(date)) {
+            totals.put(key.tenantId(), toTotals(counter));
+          }
+        });
+    return totals;
+  }
+
+  // Drops days that fell out of the window once the UTC day rolls over.
+  public void roll(LocalDate today) {
+    LocalDate from = today.minusDays(RETAINED_DAYS - 1L);
+    LocalDate current = trackedFrom;
+    if (current == null || !from.isAfter(current)) {
+      return;
+    }
+    trackedFrom = from;
+    List<DayKey> expired = new ArrayList<>();
+    for (DayKey key : counters.keySet()) {
+      if (key.date().isBefore(from)) {
+        expired.add(key);
+      }
+    }
+    expired.forEach(counters::remove);
+  }
+
+  public static long toMicros(BigDecimal costUsd) {
+    if (costUsd == null) {
+      return 0L;
+    }
+    return costUsd.setScale(6, RoundingMode.HALF_UP).movePointRight(6).longValue();
+  }
+
+  private UsageService.Totals toTotals(Counter counter) {
+    Base base = counter.base;
+    long tokens = base.tokens();
+    long costMicros = base.costMicros();
+    for (Map.Entry<Integer, Bucket> entry : counter.recent.entrySet()) {
+      if (entry.getKey() >= base.cutoffSecond()) {
+        tokens += entry.getValue().tokens.sum();
+        costMicros += entry.getValue().costMicros.sum();
+      }
+    }
+    double cost = BigDecimal.valueOf(costMicros, 6).doubleValue();
+    return new UsageService.Totals((int) Math.min(tokens, Integer.MAX_VALUE), cost);
+  }
+}
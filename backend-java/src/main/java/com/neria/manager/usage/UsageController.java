@@ -1,11 +1,22 @@
 package com.neria.manager.usage;
 
+import com.neria.manager.common.entities.UsageEvent;
 import com.neria.manager.common.security.AuthContext;
+import com.neria.manager.common.services.EventCursor;
 import com.neria.manager.notifications.NotificationsService;
 import jakarta.servlet.http.HttpServletRequest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -13,34 +24,70 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/usage")
 public class UsageController {
   private final UsageService usageService;
+  private final UsageRollupService rollupService;
+  private final UsageExportService exportService;
   private final UsageAlertsService alertsService;
   private final NotificationsService notificationsService;
 
   public UsageController(
       UsageService usageService,
+      UsageRollupService rollupService,
+      UsageExportService exportService,
       UsageAlertsService alertsService,
       NotificationsService notificationsService) {
     this.usageService = usageService;
+    this.rollupService = rollupService;
+    this.exportService = exportService;
     this.alertsService = alertsService;
     this.notificationsService = notificationsService;
   }
 
   @GetMapping("/summary")
   public Object summary(
-      HttpServletRequest request, @RequestParam(value = "tenantId", required = false) String tenantId) {
+      HttpServletRequest request,
+      @RequestParam(value = "tenantId", required = false) String tenantId,
+      @RequestParam(value = "from", required = false) String from,
+      @RequestParam(value = "to", required = false) String to) {
     AuthContext auth = requireAuth(request);
     String resolved = auth.getTenantId() != null ? auth.getTenantId() : tenantId;
+    if (from != null || to != null) {
+      return rollupService.query(
+          resolved,
+          UsageRollupService.DAY,
+          parseFrom(from),
+          parseTo(to),
+          List.of("tenant"));
+    }
     if (resolved != null && !resolved.isBlank()) {
       return usageService.getSummaryByTenant(resolved);
     }
     return usageService.getSummaryAll();
   }
 
+  @GetMapping("/rollups")
+  public List<Map<String, Object>> rollups(
+      HttpServletRequest request,
+      @RequestParam(value = "tenantId", required = false) String tenantId,
+      @RequestParam(value = "from", required = false) String from,
+      @RequestParam(value = "to", required = false) String to,
+      @RequestParam(value = "granularity", required = false) String granularity,
+      @RequestParam(value = "groupBy", required = false) List<String> groupBy) {
+    AuthContext auth = requireAuth(request);
+    String resolved = auth.getTenantId() != null ? auth.getTenantId() : tenantId;
+    return rollupService.query(
+        resolved,
+        granularity,
+        parseFrom(from),
+        parseTo(to),
+        groupBy == null || groupBy.isEmpty() ? List.of("tenant") : groupBy);
+  }
+
   @GetMapping("/alerts")
   public List<UsageAlertsService.UsageAlert> alerts(
       HttpServletRequest request, @RequestParam(value = "tenantId", required = false) String tenantId) {
@@ -54,13 +101,74 @@ public class UsageController {
       HttpServletRequest request,
       @RequestParam(value = "tenantId", required = false) String tenantId,
       @RequestParam(value = "limit", required = false) Integer limit) {
+    return eventsPage(request, tenantId, null, null, null, null, null, null, limit).items();
+  }
+
+  @GetMapping("/events/page")
+  public EventCursor.Page<UsageEvent> eventsPage(
+      HttpServletRequest request,
+      @RequestParam(value = "tenantId", required = false) String tenantId,
+      @RequestParam(value = "providerId", required = false) String providerId,
+      @RequestParam(value = "model", required = false) String model,
+      @RequestParam(value = "serviceCode", required = false) String serviceCode,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", required = false) Integer limit) {
     AuthContext auth = requireAuth(request);
     String resolved = auth.getTenantId() != null ? auth.getTenantId() : tenantId;
     int parsed = limit == null ? 20 : Math.min(Math.max(limit, 1), 200);
-    if (resolved == null || resolved.isBlank()) {
-      return usageService.listEventsAll(parsed);
+    return usageService.listEvents(
+        resolved, providerId, model, serviceCode, from, to, cursor, parsed);
+  }
+
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> export(
+      HttpServletRequest request,
+      @RequestParam(value = "tenantId", required = false) String tenantId,
+      @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @RequestParam(value = "format", required = false) String format,
+      @RequestParam(value = "gzip", required = false) Boolean gzip) {
+    AuthContext auth = requireAuth(request);
+    String resolved = auth.getTenantId() != null ? auth.getTenantId() : tenantId;
+    String resolvedFormat =
+        format == null || format.isBlank() ? UsageExportService.CSV : format.trim().toLowerCase();
+    if (!UsageExportService.CSV.equals(resolvedFormat)
+        && !UsageExportService.NDJSON.equals(resolvedFormat)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
     }
-    return usageService.listEvents(resolved, parsed);
+    boolean compressed = Boolean.TRUE.equals(gzip);
+    String filename =
+        "usage-events"
+            + (resolved != null && !resolved.isBlank() ? "-" + resolved : "")
+            + "."
+            + resolvedFormat
+            + (compressed ? ".gz" : "");
+    StreamingResponseBody body =
+        out -> {
+          if (compressed) {
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+              exportService.export(resolved, from, to, resolvedFormat, gzipOut);
+            }
+          } else {
+            exportService.export(resolved, from, to, resolvedFormat, out);
+          }
+        };
+    return ResponseEntity.ok()
+        .contentType(
+            compressed
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(
+                    UsageExportService.CSV.equals(resolvedFormat)
+                        ? "text/csv;charset=UTF-8"
+                        : "application/x-ndjson;charset=UTF-8"))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+        .body(body);
   }
 
   @PostMapping("/alerts/notify")
@@ -75,6 +183,37 @@ public class UsageController {
     return notificationsService.sendAlerts(resolved, alerts);
   }
 
+  // Dates are inclusive days (yyyy-MM-dd); full timestamps are used as given, "to" exclusive.
+  private LocalDateTime parseFrom(String value) {
+    if (value == null || value.isBlank()) {
+      return LocalDate.now(ZoneOffset.UTC).minusDays(29).atStartOfDay();
+    }
+    return value.length() == 10 ? parseDate(value).atStartOfDay() : parseDateTime(value);
+  }
+
+  private LocalDateTime parseTo(String value) {
+    if (value == null || value.isBlank()) {
+      return LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+    }
+    return value.length() == 10 ? parseDate(value).plusDays(1).atStartOfDay() : parseDateTime(value);
+  }
+
+  private LocalDate parseDate(String value) {
+    try {
+      return LocalDate.parse(value);
+    } catch (DateTimeParseException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date: " + value);
+    }
+  }
+
+  private LocalDateTime parseDateTime(String value) {
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date: " + value);
+    }
+  }
+
   private AuthContext requireAuth(HttpServletRequest request) {
     AuthContext auth = (AuthContext) request.getAttribute("auth");
     if (auth == null) {
@@ -0,0 +1,163 @@
+package com.neria.manager.usage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+public class UsageExportService {
+  public static final String CSV = "csv";
+  public static final String NDJSON = "ndjson";
+
+  private static final String[] COLUMNS = {
+    "id", "tenantId", "providerId", "model", "serviceCode", "tokensIn", "tokensOut", "costUsd",
+    "hedge", "createdAt"
+  };
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+
+  public UsageExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  // Rows are written as they come off the cursor; nothing is buffered beyond the writer.
+  public void export(
+      String tenantId, LocalDateTime from, LocalDateTime to, String format, OutputStream out)
+      throws IOException {
+    StringBuilder sql =
+        new StringBuilder("SELECT ")
+            .append(String.join(", ", COLUMNS))
+            .append(" FROM usage_events WHERE 1 = 1");
+    List<Object> args = new ArrayList<>();
+    if (tenantId != null && !tenantId.isBlank()) {
+      sql.append(" AND tenantId = ?");
+      args.add(tenantId);
+    }
+    if (from != null) {
+      sql.append(" AND createdAt >= ?");
+      args.add(Timestamp.valueOf(from));
+    }
+    if (to != null) {
+      sql.append(" AND createdAt < ?");
+      args.add(Timestamp.valueOf(to));
+    }
+    sql.append(" ORDER BY createdAt, id");
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    JsonGenerator json = null;
+    if (NDJSON.equals(format)) {
+      json = objectMapper.getFactory().createGenerator(writer);
+      json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      json.setRootValueSeparator(null);
+    } else {
+      writer.write(String.join(",", COLUMNS));
+      writer.write("\n");
+    }
+    JsonGenerator generator = json;
+    try {
+      jdbcTemplate.query(
+          connection -> {
+            PreparedStatement statement =
+                connection.prepareStatement(
+                    sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of loading the result.
+            statement.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < args.size(); i++) {
+              statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+          },
+          rs -> {
+            try {
+              if (generator != null) {
+                writeJson(generator, rs);
+              } else {
+                writeCsv(writer, rs);
+              }
+            } catch (IOException ex) {
+              throw new UncheckedIOException(ex);
+            }
+          });
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    if (generator != null) {
+      generator.flush();
+    }
+    writer.flush();
+  }
+
+  private void writeCsv(Writer writer, ResultSet rs) throws IOException, SQLException {
+    writer.write(csv(rs.getString("id")));
+    writer.write(',');
+    writer.write(csv(rs.getString("tenantId")));
+    writer.write(',');
+    writer.write(csv(rs.getString("providerId")));
+    writer.write(',');
+    writer.write(csv(rs.getString("model")));
+    writer.write(',');
+    writer.write(csv(rs.getString("serviceCode")));
+    writer.write(',');
+    writer.write(Integer.toString(rs.getInt("tokensIn")));
+    writer.write(',');
+    writer.write(Integer.toString(rs.getInt("tokensOut")));
+    writer.write(',');
+    BigDecimal cost = rs.getBigDecimal("costUsd");
+    writer.write(cost != null ? cost.toPlainString() : "");
+    writer.write(',');
+    writer.write(Boolean.toString(rs.getBoolean("hedge")));
+    writer.write(',');
+    Timestamp createdAt = rs.getTimestamp("createdAt");
+    writer.write(createdAt != null ? createdAt.toLocalDateTime().toString() : "");
+    writer.write('\n');
+  }
+
+  private void writeJson(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+    generator.writeStartObject();
+    generator.writeStringField("id", rs.getString("id"));
+    generator.writeStringField("tenantId", rs.getString("tenantId"));
+    generator.writeStringField("providerId", rs.getString("providerId"));
+    generator.writeStringField("model", rs.getString("model"));
+    generator.writeStringField("serviceCode", rs.getString("serviceCode"));
+    generator.writeNumberField("tokensIn", rs.getInt("tokensIn"));
+    generator.writeNumberField("tokensOut", rs.getInt("tokensOut"));
+    generator.writeNumberField("costUsd", rs.getBigDecimal("costUsd"));
+    generator.writeBooleanField("hedge", rs.getBoolean("hedge"));
+    Timestamp createdAt = rs.getTimestamp("createdAt");
+    generator.writeStringField(
+        "createdAt", createdAt != null ? createdAt.toLocalDateTime().toString() : null);
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  private String csv(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+}
@@ -0,0 +1,445 @@
+package com.neria.manager.usage;
+
+import com.neria.manager.common.entities.PricingModel;
+import com.neria.manager.common.entities.UsageEvent;
+import com.neria.manager.pricing.PricingChangedEvent;
+import com.neria.manager.pricing.PricingService;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Re-prices historical usage after a pricing model changes. Jobs walk usage_events in
+// (createdAt, id) order, one chunk per transaction together with the checkpoint, so a job picks
+// up where it stopped after a restart. A single worker thread and a pause between chunks keep
+// it from competing with the runtime for database connections.
+@Service
+public class UsageRepricingService {
+  private static final Logger log = LoggerFactory.getLogger(UsageRepricingService.class);
+
+  public static final String PENDING = "pending";
+  public static final String RUNNING = "running";
+  public static final String COMPLETED = "completed";
+  public static final String FAILED = "failed";
+  public static final String SUPERSEDED = "superseded";
+
+  private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  private static final String SELECT_CHUNK =
+      "SELECT e.id, e.tenantId, e.providerId, e.model, e.serviceCode, e.tokensIn, e.tokensOut, "
+          + "e.costUsd, e.createdAt, p.type AS providerType "
+          + "FROM usage_events e JOIN providers p ON p.id = e.providerId "
+          + "WHERE %s(e.createdAt > ? OR (e.createdAt = ? AND e.id > ?)) "
+          + "ORDER BY e.createdAt, e.id LIMIT ?";
+
+  private record Job(
+      String id,
+      String pricingId,
+      LocalDateTime fromDate,
+      LocalDateTime checkpointCreatedAt,
+      String checkpointId) {}
+
+  private record Row(
+      String id,
+      String tenantId,
+      String providerId,
+      String model,
+      String serviceCode,
+      int tokensIn,
+      int tokensOut,
+      BigDecimal costUsd,
+      LocalDateTime createdAt,
+      String providerType) {}
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final PricingService pricingService;
+  private final UsageRollupService usageRollups;
+  private final DailyUsageCounters dailyCounters;
+  private final String owner = UUID.randomUUID().toString();
+  private final int chunkSize;
+  private final long chunkPauseMs;
+  private final long staleAfterMs;
+  private final long lookbackDays;
+  private final ExecutorService worker;
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+  private volatile boolean stopping;
+
+  public UsageRepricingService(
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      PricingService pricingService,
+      UsageRollupService usageRollups,
+      DailyUsageCounters dailyCounters) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.pricingService = pricingService;
+    this.usageRollups = usageRollups;
+    this.dailyCounters = dailyCounters;
+    this.chunkSize =
+        Math.max(1, Integer.parseInt(System.getenv().getOrDefault("REPRICING_CHUNK_SIZE", "500")));
+    this.chunkPauseMs =
+        Long.parseLong(System.getenv().getOrDefault("REPRICING_CHUNK_PAUSE_MS", "250"));
+    this.staleAfterMs =
+        Long.parseLong(System.getenv().getOrDefault("REPRICING_STALE_AFTER_MS", "300000"));
+    // 0 re-prices the full history.
+    this.lookbackDays =
+        Long.parseLong(System.getenv().getOrDefault("REPRICING_LOOKBACK_DAYS", "0"));
+    this.worker =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "usage-repricing");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @EventListener
+  public void onPricingChanged(PricingChangedEvent event) {
+    schedule(event.pricingId());
+  }
+
+  // A newer job for the same pricing replaces any unfinished one, which stops at its next
+  // checkpoint and rolls back the chunk in flight.
+  public Map<String, Object> schedule(String pricingId) {
+    LocalDateTime now = LocalDateTime.now();
+    jdbcTemplate.update(
+        "UPDATE repricing_jobs SET status = ?, updatedAt = ? "
+            + "WHERE pricingId = ? AND status IN (?, ?)",
+        SUPERSEDED,
+        Timestamp.valueOf(now),
+        pricingId,
+        PENDING,
+        RUNNING);
+    String id = UUID.randomUUID().toString();
+    LocalDateTime fromDate = lookbackDays > 0 ? now.minusDays(lookbackDays) : null;
+    jdbcTemplate.update(
+        "INSERT INTO repricing_jobs (id, pricingId, status, fromDate, createdAt, updatedAt) "
+            + "VALUES (?, ?, ?, ?, ?, ?)",
+        id,
+        pricingId,
+        PENDING,
+        fromDate != null ? Timestamp.valueOf(fromDate) : null,
+        Timestamp.valueOf(now),
+        Timestamp.valueOf(now));
+    log.info("Re-pricing job scheduled id={} pricingId={}", id, pricingId);
+    kick();
+    return getJob(id);
+  }
+
+  public List<Map<String, Object>> listJobs(int limit) {
+    return jdbcTemplate.queryForList(
+        "SELECT id, pricingId, status, fromDate, checkpointCreatedAt, scanned, updated, error, "
+            + "createdAt, updatedAt FROM repricing_jobs ORDER BY createdAt DESC LIMIT ?",
+        Math.max(1, Math.min(limit, 200)));
+  }
+
+  public Map<String, Object> getJob(String id) {
+    List<Map<String, Object>> rows =
+        jdbcTemplate.queryForList(
+            "SELECT id, pricingId, status, fromDate, checkpointCreatedAt, scanned, updated, error, "
+                + "createdAt, updatedAt FROM repricing_jobs WHERE id = ?",
+            id);
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  // Resumes jobs left behind by a restart, or by a replica that stopped heartbeating.
+  @Scheduled(
+      initialDelayString = "${REPRICING_POLL_MS:60000}",
+      fixedDelayString = "${REPRICING_POLL_MS:60000}")
+  public void poll() {
+    kick();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    stopping = true;
+    worker.shutdown();
+  }
+
+  private void kick() {
+    if (stopping || !draining.compareAndSet(false, true)) {
+      return;
+    }
+    worker.execute(
+        () -> {
+          try {
+            drain();
+          } finally {
+            draining.set(false);
+          }
+        });
+  }
+
+  private void drain() {
+    while (!stopping) {
+      Job job;
+      try {
+        job = claimNext();
+      } catch (RuntimeException ex) {
+        log.warn("Re-pricing job claim failed", ex);
+        return;
+      }
+      if (job == null) {
+        return;
+      }
+      try {
+        run(job);
+      } catch (RuntimeException ex) {
+        log.error("Re-pricing job failed id={}", job.id(), ex);
+        finish(job.id(), FAILED, String.valueOf(ex.getMessage()));
+      }
+    }
+  }
+
+  private Job claimNext() {
+    LocalDateTime now = LocalDateTime.now();
+    Timestamp staleBefore = Timestamp.valueOf(now.minusNanos(staleAfterMs * 1_000_000L));
+    List<Job> candidates =
+        jdbcTemplate.query(
+            "SELECT id, pricingId, fromDate, checkpointCreatedAt, checkpointId FROM repricing_jobs "
+                + "WHERE status = ? OR (status = ? AND heartbeatAt < ?) ORDER BY createdAt LIMIT 5",
+            (rs, rowNum) ->
+                new Job(
+                    rs.getString("id"),
+                    rs.getString("pricingId"),
+                    toLocalDateTime(rs.getTimestamp("fromDate")),
+                    toLocalDateTime(rs.getTimestamp("checkpointCreatedAt")),
+                    rs.getString("checkpointId")),
+            PENDING,
+            RUNNING,
+            staleBefore);
+    for (Job candidate : candidates) {
+      int claimed =
+          jdbcTemplate.update(
+              "UPDATE repricing_jobs SET status = ?, owner = ?, heartbeatAt = ?, updatedAt = ? "
+                  + "WHERE id = ? AND (status = ? OR (status = ? AND heartbeatAt < ?))",
+              RUNNING,
+              owner,
+              Timestamp.valueOf(now),
+              Timestamp.valueOf(now),
+              candidate.id(),
+              PENDING,
+              RUNNING,
+              staleBefore);
+      if (claimed == 1) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private void run(Job job) {
+    PricingModel pricing = pricingService.resolveById(job.pricingId());
+    if (pricing == null) {
+      // Disabled or removed pricing no longer prices anything; existing costs are left as they are.
+      finish(job.id(), COMPLETED, null);
+      return;
+    }
+    Map<String, String> serviceOverrides = loadServiceOverrides();
+    // A service-level override prices every model of that service, whatever the pricing's own
+    // model says, so the model filter only holds when no service points at this pricing.
+    boolean allModels =
+        "*".equals(pricing.getModel()) || serviceOverrides.containsValue(job.pricingId());
+    LocalDateTime cursorCreatedAt =
+        job.checkpointCreatedAt() != null
+            ? job.checkpointCreatedAt()
+            : job.fromDate() != null ? job.fromDate() : START;
+    String cursorId = job.checkpointCreatedAt() != null ? job.checkpointId() : "";
+    log.info(
+        "Re-pricing job started id={} pricingId={} from={}", job.id(), job.pricingId(), cursorCreatedAt);
+
+    while (!stopping) {
+      List<Row> rows = fetchChunk(allModels ? null : pricing.getModel(), cursorCreatedAt, cursorId);
+      if (rows.isEmpty()) {
+        finish(job.id(), COMPLETED, null);
+        log.info("Re-pricing job completed id={}", job.id());
+        return;
+      }
+      Row last = rows.get(rows.size() - 1);
+      List<Row> repriced = new ArrayList<>();
+      List<BigDecimal> costs = new ArrayList<>();
+      reprice(job.pricingId(), rows, serviceOverrides, repriced, costs);
+
+      List<UsageEvent> deltas = new ArrayList<>(repriced.size());
+      for (int i = 0; i < repriced.size(); i++) {
+        Row row = repriced.get(i);
+        UsageEvent delta = new UsageEvent();
+        delta.setTenantId(row.tenantId());
+        delta.setProviderId(row.providerId());
+        delta.setModel(row.model());
+        delta.setServiceCode(row.serviceCode());
+        delta.setCreatedAt(row.createdAt());
+        delta.setCostUsd(
+            costs.get(i).subtract(row.costUsd() != null ? row.costUsd() : BigDecimal.ZERO));
+        deltas.add(delta);
+      }
+
+      Boolean committed =
+          transactionTemplate.execute(
+              status -> {
+                if (!repriced.isEmpty()) {
+                  List<Object[]> updates = new ArrayList<>(repriced.size());
+                  for (int i = 0; i < repriced.size(); i++) {
+                    updates.add(new Object[] {costs.get(i), repriced.get(i).id()});
+                  }
+                  jdbcTemplate.batchUpdate("UPDATE usage_events SET costUsd = ? WHERE id = ?", updates);
+                  usageRollups.adjustCost(deltas);
+                }
+                LocalDateTime now = LocalDateTime.now();
+                int advanced =
+                    jdbcTemplate.update(
+                        "UPDATE repricing_jobs SET checkpointCreatedAt = ?, checkpointId = ?, "
+                            + "scanned = scanned + ?, updated = updated + ?, heartbeatAt = ?, "
+                            + "updatedAt = ? WHERE id = ? AND status = ? AND owner = ?",
+                        Timestamp.valueOf(last.createdAt()),
+                        last.id(),
+                        rows.size(),
+                        repriced.size(),
+                        Timestamp.valueOf(now),
+                        Timestamp.valueOf(now),
+                        job.id(),
+                        RUNNING,
+                        owner);
+                if (advanced != 1) {
+                  status.setRollbackOnly();
+                  return false;
+                }
+                return true;
+              });
+      if (!Boolean.TRUE.equals(committed)) {
+        log.info("Re-pricing job superseded id={}", job.id());
+        return;
+      }
+      for (UsageEvent delta : deltas) {
+        dailyCounters.add(delta.getTenantId(), delta.getCreatedAt(), 0, delta.getCostUsd());
+      }
+      cursorCreatedAt = last.createdAt();
+      cursorId = last.id();
+      pause();
+    }
+  }
+
+  // Keeps rows that currently resolve to the job's pricing (same precedence as the runtime:
+  // service override first, then tenant assignments) and whose stored cost differs.
+  private void reprice(
+      String pricingId,
+      List<Row> rows,
+      Map<String, String> serviceOverrides,
+      List<Row> repriced,
+      List<BigDecimal> costs) {
+    List<Row> matched = new ArrayList<>();
+    List<PricingService.CostLine> lines = new ArrayList<>();
+    for (Row row : rows) {
+      String overrideKey = row.tenantId() + "|" + row.serviceCode();
+      PricingModel resolved =
+          row.serviceCode() != null && serviceOverrides.containsKey(overrideKey)
+              ? pricingService.resolveById(serviceOverrides.get(overrideKey))
+              : pricingService.resolveForTenant(row.tenantId(), row.providerType(), row.model());
+      if (resolved == null || !pricingId.equals(resolved.getId())) {
+        continue;
+      }
+      matched.add(row);
+      lines.add(
+          new PricingService.CostLine(
+              row.tenantId(), row.providerType(), row.model(), pricingId, row.tokensIn(), row.tokensOut()));
+    }
+    double[] computed = pricingService.calculateCosts(lines);
+    for (int i = 0; i < computed.length; i++) {
+      if (Double.isNaN(computed[i])) {
+        continue;
+      }
+      Row row = matched.get(i);
+      BigDecimal cost = BigDecimal.valueOf(computed[i]).setScale(6, RoundingMode.HALF_UP);
+      if (row.costUsd() == null || cost.compareTo(row.costUsd()) != 0) {
+        repriced.add(row);
+        costs.add(cost);
+      }
+    }
+  }
+
+  private List<Row> fetchChunk(String model, LocalDateTime cursorCreatedAt, String cursorId) {
+    List<Object> args = new ArrayList<>();
+    if (model != null) {
+      args.add(model);
+    }
+    args.add(Timestamp.valueOf(cursorCreatedAt));
+    args.add(Timestamp.valueOf(cursorCreatedAt));
+    args.add(cursorId);
+    args.add(chunkSize);
+    return jdbcTemplate.query(
+        String.format(SELECT_CHUNK, model != null ? "e.model = ? AND " : ""),
+        (rs, rowNum) ->
+            new Row(
+                rs.getString("id"),
+                rs.getString("tenantId"),
+                rs.getString("providerId"),
+                rs.getString("model"),
+                rs.getString("serviceCode"),
+                rs.getInt("tokensIn"),
+                rs.getInt("tokensOut"),
+                rs.getBigDecimal("costUsd"),
+                toLocalDateTime(rs.getTimestamp("createdAt")),
+                rs.getString("providerType")),
+        args.toArray());
+  }
+
+  private Map<String, String> loadServiceOverrides() {
+    Map<String, String> overrides = new HashMap<>();
+    jdbcTemplate.query(
+        "SELECT tenantId, serviceCode, pricingId FROM tenant_service_configs "
+            + "WHERE pricingId IS NOT NULL",
+        rs -> {
+          overrides.put(
+              rs.getString("tenantId") + "|" + rs.getString("serviceCode"), rs.getString("pricingId"));
+        });
+    return overrides;
+  }
+
+  private void finish(String jobId, String status, String error) {
+    LocalDateTime now = LocalDateTime.now();
+    jdbcTemplate.update(
+        "UPDATE repricing_jobs SET status = ?, error = ?, heartbeatAt = ?, updatedAt = ? "
+            + "WHERE id = ? AND status = ? AND owner = ?",
+        status,
+        error,
+        Timestamp.valueOf(now),
+        Timestamp.valueOf(now),
+        jobId,
+        RUNNING,
+        owner);
+  }
+
+  private void pause() {
+    if (chunkPauseMs <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(chunkPauseMs);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      stopping = true;
+    }
+  }
+
+  private LocalDateTime toLocalDateTime(Timestamp value) {
+    return value != null ? value.toLocalDateTime() : null;
+  }
+}
@@ -0,0 +1,263 @@
+package com.neria.manager.usage;
+
+import com.neria.manager.common.entities.UsageEvent;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+@Service
+public class UsageRollupService {
+  private static final Logger log = LoggerFactory.getLogger(UsageRollupService.class);
+
+  public static final String HOUR = "hour";
+  public static final String DAY = "day";
+
+  private static final String UPSERT_INCREMENT =
+      "INSERT INTO usage_rollups "
+          + "(granularity, bucketStart, tenantId, providerId, model, serviceCode, "
+          + "requests, tokensIn, tokensOut, costUsd) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+          + "ON DUPLICATE KEY UPDATE requests = requests + VALUES(requests), "
+          + "tokensIn = tokensIn + VALUES(tokensIn), tokensOut = tokensOut + VALUES(tokensOut), "
+          + "costUsd = costUsd + VALUES(costUsd)";
+
+  // Rebuilds buckets from usage_events, overwriting whatever the incremental path left behind.
+  private static final String REBUILD =
+      "INSERT INTO usage_rollups "
+          + "(granularity, bucketStart, tenantId, providerId, model, serviceCode, "
+          + "requests, tokensIn, tokensOut, costUsd) "
+          + "SELECT ?, %s AS bucket, tenantId, providerId, model, COALESCE(serviceCode, ''), "
+          + "SUM(CASE WHEN hedge = 0 THEN 1 ELSE 0 END), SUM(tokensIn), SUM(tokensOut), SUM(costUsd) "
+          + "FROM usage_events WHERE createdAt >= ? AND createdAt < ? "
+          + "GROUP BY bucket, tenantId, providerId, model, COALESCE(serviceCode, '') "
+          + "ON DUPLICATE KEY UPDATE requests = VALUES(requests), tokensIn = VALUES(tokensIn), "
+          + "tokensOut = VALUES(tokensOut), costUsd = VALUES(costUsd)";
+
+  private static final Map<String, String> GROUP_COLUMNS =
+      Map.of(
+          "tenant", "tenantId",
+          "provider", "providerId",
+          "model", "model",
+          "service", "serviceCode",
+          "bucket", "bucketStart");
+
+  private record RollupKey(
+      String granularity,
+      LocalDateTime bucketStart,
+      String tenantId,
+      String providerId,
+      String model,
+      String serviceCode) {}
+
+  private static class RollupDelta {
+    long requests;
+    long tokensIn;
+    long tokensOut;
+    BigDecimal costUsd = BigDecimal.ZERO;
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final long compactWindowHours;
+  private final long hourlyRetentionDays;
+
+  public UsageRollupService(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.compactWindowHours =
+        Long.parseLong(System.getenv().getOrDefault("USAGE_ROLLUP_COMPACT_HOURS", "48"));
+    this.hourlyRetentionDays =
+        Long.parseLong(System.getenv().getOrDefault("USAGE_ROLLUP_HOURLY_RETENTION_DAYS", "90"));
+  }
+
+  // Called by the event writer in the transaction that inserts the usage batch; one upsert per
+  // touched bucket.
+  // Hedge rows add their tokens and cost but are not separate requests.
+  public void apply(List<UsageEvent> events) {
+    Map<RollupKey, RollupDelta> deltas = new LinkedHashMap<>();
+    for (UsageEvent event : events) {
+      if (event.getCreatedAt() == null) {
+        continue;
+      }
+      LocalDateTime hour = event.getCreatedAt().truncatedTo(ChronoUnit.HOURS);
+      LocalDateTime day = event.getCreatedAt().truncatedTo(ChronoUnit.DAYS);
+      int requests = event.isHedge() ? 0 : 1;
+      accumulate(deltas, new RollupKey(HOUR, hour, event.getTenantId(), event.getProviderId(),
+          event.getModel(), serviceCode(event)), event, requests);
+      accumulate(deltas, new RollupKey(DAY, day, event.getTenantId(), event.getProviderId(),
+          event.getModel(), serviceCode(event)), event, requests);
+    }
+    upsert(deltas);
+  }
+
+  // Shifts bucket cost by each event's costUsd (a delta) without counting it as a request; used
+  // when historical usage is re-priced. Token fields on the events are expected to be zero.
+  public void adjustCost(List<UsageEvent> costDeltas) {
+    LocalDateTime hourlyFrom =
+        hourlyRetentionDays > 0
+            ? LocalDateTime.now(ZoneOffset.UTC)
+                .minusDays(hourlyRetentionDays)
+                .truncatedTo(ChronoUnit.HOURS)
+            : null;
+    Map<RollupKey, RollupDelta> deltas = new LinkedHashMap<>();
+    for (UsageEvent event : costDeltas) {
+      if (event.getCreatedAt() == null) {
+        continue;
+      }
+      LocalDateTime hour = event.getCreatedAt().truncatedTo(ChronoUnit.HOURS);
+      LocalDateTime day = event.getCreatedAt().truncatedTo(ChronoUnit.DAYS);
+      // Purged hourly buckets stay purged.
+      if (hourlyFrom == null || !hour.isBefore(hourlyFrom)) {
+        accumulate(deltas, new RollupKey(HOUR, hour, event.getTenantId(), event.getProviderId(),
+            event.getModel(), serviceCode(event)), event, 0);
+      }
+      accumulate(deltas, new RollupKey(DAY, day, event.getTenantId(), event.getProviderId(),
+          event.getModel(), serviceCode(event)), event, 0);
+    }
+    upsert(deltas);
+  }
+
+  private void upsert(Map<RollupKey, RollupDelta> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    List<Map.Entry<RollupKey, RollupDelta>> rows = new ArrayList<>(deltas.entrySet());
+    jdbcTemplate.batchUpdate(UPSERT_INCREMENT, rows, rows.size(), (ps, row) -> {
+      RollupKey key = row.getKey();
+      RollupDelta delta = row.getValue();
+      ps.setString(1, key.granularity());
+      ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+      ps.setString(3, key.tenantId());
+      ps.setString(4, key.providerId());
+      ps.setString(5, key.model());
+      ps.setString(6, key.serviceCode());
+      ps.setLong(7, delta.requests);
+      ps.setLong(8, delta.tokensIn);
+      ps.setLong(9, delta.tokensOut);
+      ps.setBigDecimal(10, delta.costUsd);
+    });
+  }
+
+  // Recomputes recent buckets from the raw events so rollups converge even if an incremental
+  // upsert was lost, then trims old hourly rows (daily rows are kept). The event writer inserts
+  // usage rows and applies their increments in one transaction, so each rebuild statement sees
+  // either both (and overwrites them) or neither (and the increment lands on top afterwards);
+  // an event is never counted twice.
+  @Scheduled(
+      initialDelayString = "${USAGE_ROLLUP_COMPACT_INITIAL_DELAY_MS:60000}",
+      fixedDelayString = "${USAGE_ROLLUP_COMPACT_INTERVAL_MS:3600000}")
+  public void compact() {
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    LocalDateTime hourFrom = now.minusHours(compactWindowHours).truncatedTo(ChronoUnit.HOURS);
+    LocalDateTime dayFrom = hourFrom.truncatedTo(ChronoUnit.DAYS);
+    LocalDateTime end = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+    try {
+      int hours =
+          jdbcTemplate.update(
+              String.format(REBUILD, "DATE_FORMAT(createdAt, '%Y-%m-%d %H:00:00')"),
+              HOUR,
+              Timestamp.valueOf(hourFrom),
+              Timestamp.valueOf(end));
+      int days =
+          jdbcTemplate.update(
+              String.format(REBUILD, "TIMESTAMP(DATE(createdAt))"),
+              DAY,
+              Timestamp.valueOf(dayFrom),
+              Timestamp.valueOf(end));
+      int purged =
+          hourlyRetentionDays > 0
+              ? jdbcTemplate.update(
+                  "DELETE FROM usage_rollups WHERE granularity = ? AND bucketStart < ?",
+                  HOUR,
+                  Timestamp.valueOf(now.minusDays(hourlyRetentionDays).truncatedTo(ChronoUnit.HOURS)))
+              : 0;
+      log.info("Usage rollup compaction hours={} days={} purged={}", hours, days, purged);
+    } catch (RuntimeException ex) {
+      log.error("Usage rollup compaction failed", ex);
+    }
+  }
+
+  public List<Map<String, Object>> query(
+      String tenantId,
+      String granularity,
+      LocalDateTime from,
+      LocalDateTime to,
+      List<String> groupBy) {
+    String resolvedGranularity = HOUR.equalsIgnoreCase(granularity) ? HOUR : DAY;
+    List<String> columns = new ArrayList<>();
+    for (String group : groupBy) {
+      String column = GROUP_COLUMNS.get(group);
+      if (column == null) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid groupBy: " + group);
+      }
+      if (!columns.contains(column)) {
+        columns.add(column);
+      }
+    }
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (String column : columns) {
+      sql.append(column).append(", ");
+    }
+    sql.append(
+        "SUM(requests) AS requests, SUM(tokensIn) AS tokensIn, SUM(tokensOut) AS tokensOut, "
+            + "SUM(costUsd) AS costUsd FROM usage_rollups "
+            + "WHERE granularity = ? AND bucketStart >= ? AND bucketStart < ?");
+    List<Object> args = new ArrayList<>();
+    args.add(resolvedGranularity);
+    args.add(Timestamp.valueOf(from));
+    args.add(Timestamp.valueOf(to));
+    if (tenantId != null && !tenantId.isBlank()) {
+      sql.append(" AND tenantId = ?");
+      args.add(tenantId);
+    }
+    if (!columns.isEmpty()) {
+      String joined = String.join(", ", columns);
+      sql.append(" GROUP BY ").append(joined).append(" ORDER BY ").append(joined);
+    }
+    return jdbcTemplate.query(
+        sql.toString(),
+        (rs, rowNum) -> {
+          Map<String, Object> row = new HashMap<>();
+          for (String column : columns) {
+            row.put(column, rs.getObject(column));
+          }
+          long tokensIn = rs.getLong("tokensIn");
+          long tokensOut = rs.getLong("tokensOut");
+          BigDecimal cost = rs.getBigDecimal("costUsd");
+          row.put("requests", rs.getLong("requests"));
+          row.put("tokensIn", tokensIn);
+          row.put("tokensOut", tokensOut);
+          row.put("tokens", tokensIn + tokensOut);
+          row.put("costUsd", cost != null ? cost.doubleValue() : 0d);
+          return row;
+        },
+        args.toArray());
+  }
+
+  private void accumulate(
+      Map<RollupKey, RollupDelta> deltas, RollupKey key, UsageEvent event, int requests) {
+    RollupDelta delta = deltas.computeIfAbsent(key, k -> new RollupDelta());
+    delta.requests += requests;
+    delta.tokensIn += event.getTokensIn();
+    delta.tokensOut += event.getTokensOut();
+    if (event.getCostUsd() != null) {
+      delta.costUsd = delta.costUsd.add(event.getCostUsd());
+    }
+  }
+
+  private String serviceCode(UsageEvent event) {
+    return event.getServiceCode() != null ? event.getServiceCode() : "";
+  }
+}
@@ -2,21 +2,85 @@ package com.neria.manager.usage;
 
 import com.neria.manager.common.entities.UsageEvent;
 import com.neria.manager.common.repos.UsageEventRepository;
+import com.neria.manager.common.services.EventBatchWriter;
+import com.neria.manager.common.services.EventCursor;
+import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UsageService {
   private final UsageEventRepository usageRepository;
+  private final DailyUsageCounters dailyCounters;
+  private final EventBatchWriter eventWriter;
+  private final long resyncLagMs;
 
-  public UsageService(UsageEventRepository usageRepository) {
+  public UsageService(
+      UsageEventRepository usageRepository,
+      DailyUsageCounters dailyCounters,
+      EventBatchWriter eventWriter) {
     this.usageRepository = usageRepository;
+    this.dailyCounters = dailyCounters;
+    this.eventWriter = eventWriter;
+    this.resyncLagMs =
+        Long.parseLong(System.getenv().getOrDefault("DAILY_USAGE_RESYNC_LAG_MS", "5000"));
+  }
+
+  // Seeds the in-memory daily totals before any request can record usage.
+  @PostConstruct
+  public void seedDailyTotals() {
+    dailyCounters.start(LocalDate.now(ZoneOffset.UTC));
+    resyncDailyTotals();
+  }
+
+  // Re-reads the database base so usage recorded by other replicas counts against the daily
+  // limits here too. Rows newer than DAILY_USAGE_RESYNC_LAG_MS, or than the oldest usage event
+  // this replica's writer has not committed yet (it may be retrying or backed up), are left to
+  // the local counts: the cutoff never passes a row that is only counted locally.
+  @Scheduled(
+      initialDelayString = "${DAILY_USAGE_RESYNC_MS:15000}",
+      fixedDelayString = "${DAILY_USAGE_RESYNC_MS:15000}")
+  public void resyncDailyTotals() {
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    dailyCounters.roll(today);
+    LocalDateTime cutoff =
+        LocalDateTime.now(ZoneOffset.UTC)
+            .minusNanos(resyncLagMs * 1_000_000L)
+            .truncatedTo(ChronoUnit.SECONDS);
+    LocalDateTime pendingFrom = eventWriter.usageCommittedBefore();
+    if (pendingFrom != null && pendingFrom.isBefore(cutoff)) {
+      cutoff = pendingFrom;
+    }
+    for (LocalDate day = dailyCounters.getTrackedFrom(); !day.isAfter(today); day = day.plusDays(1)) {
+      LocalDateTime start = day.atStartOfDay();
+      LocalDateTime end = cutoff.isBefore(start.plusDays(1)) ? cutoff : start.plusDays(1);
+      Map<String, long[]> totals = new HashMap<>();
+      int cutoffSecond = 0;
+      if (end.isAfter(start)) {
+        cutoffSecond = (int) Duration.between(start, end).getSeconds();
+        for (UsageEventRepository.TenantUsageTotals row :
+            usageRepository.sumByTenant(null, start, end)) {
+          totals.put(
+              row.getTenantId(),
+              new long[] {
+                toLong(row.getTokens()),
+                DailyUsageCounters.toMicros(toBigDecimal(row.getCostUsd()))
+              });
+        }
+      }
+      dailyCounters.resync(day, cutoffSecond, totals);
+    }
   }
 
   public UsageEvent record(UsageEvent event) {
@@ -24,33 +88,34 @@ public class UsageService {
       event.setId(UUID.randomUUID().toString());
     }
     if (event.getCreatedAt() == null) {
-      event.setCreatedAt(LocalDateTime.now());
+      // Usage time is UTC throughout: daily limits, rollup buckets and the /usage ranges.
+      event.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
     }
     if (event.getCostUsd() == null) {
       event.setCostUsd(BigDecimal.ZERO);
     }
-    return usageRepository.save(event);
+    eventWriter.write(event);
+    dailyCounters.add(
+        event.getTenantId(),
+        event.getCreatedAt(),
+        (long) event.getTokensIn() + event.getTokensOut(),
+        event.getCostUsd());
+    return event;
   }
 
   public Totals getDailyTotals(String tenantId, LocalDate date) {
-    LocalDateTime start = date.atStartOfDay();
-    LocalDateTime end = date.plusDays(1).atStartOfDay();
-    List<UsageEvent> events =
-        usageRepository.findTop200ByTenantIdOrderByCreatedAtDesc(tenantId);
-    int tokens = 0;
-    double cost = 0;
-    for (UsageEvent event : events) {
-      if (event.getCreatedAt() == null) {
-        continue;
-      }
-      LocalDateTime createdAt = event.getCreatedAt();
-      if (createdAt.isBefore(start) || !createdAt.isBefore(end)) {
-        continue;
-      }
-      tokens += event.getTokensIn() + event.getTokensOut();
-      cost += event.getCostUsd().doubleValue();
+    dailyCounters.roll(LocalDate.now(ZoneOffset.UTC));
+    if (dailyCounters.covers(date)) {
+      return dailyCounters.get(tenantId, date);
+    }
+    // Older days are outside the in-memory window; aggregate them in the database.
+    List<UsageEventRepository.TenantUsageTotals> rows =
+        usageRepository.sumByTenant(tenantId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    if (rows.isEmpty()) {
+      return new Totals(0, 0d);
     }
-    return new Totals(tokens, cost);
+    UsageEventRepository.TenantUsageTotals row = rows.get(0);
+    return new Totals((int) toLong(row.getTokens()), toBigDecimal(row.getCostUsd()).doubleValue());
   }
 
   public Map<String, Object> getSummaryByTenant(String tenantId) {
@@ -59,41 +124,63 @@ public class UsageService {
   }
 
   public List<Map<String, Object>> getSummaryAll() {
-    List<UsageEvent> events = usageRepository.findTop200ByOrderByCreatedAtDesc();
     LocalDate today = LocalDate.now(ZoneOffset.UTC);
-    LocalDateTime start = today.atStartOfDay();
-    LocalDateTime end = today.plusDays(1).atStartOfDay();
-    return events.stream()
-        .filter(event -> event.getCreatedAt() != null)
-        .filter(event -> !event.getCreatedAt().isBefore(start) && event.getCreatedAt().isBefore(end))
-        .collect(java.util.stream.Collectors.groupingBy(UsageEvent::getTenantId))
-        .entrySet()
-        .stream()
+    dailyCounters.roll(today);
+    return dailyCounters.getAll(today).entrySet().stream()
         .map(
             entry -> {
-              int tokens = 0;
-              double cost = 0;
-              for (UsageEvent event : entry.getValue()) {
-                tokens += event.getTokensIn() + event.getTokensOut();
-                cost += event.getCostUsd().doubleValue();
-              }
               Map<String, Object> summary = new java.util.HashMap<>();
               summary.put("tenantId", entry.getKey());
-              summary.put("tokens", tokens);
-              summary.put("costUsd", cost);
+              summary.put("tokens", entry.getValue().tokens());
+              summary.put("costUsd", entry.getValue().costUsd());
               return summary;
             })
         .toList();
   }
 
-  public List<UsageEvent> listEvents(String tenantId, int limit) {
-    List<UsageEvent> events = usageRepository.findTop200ByTenantIdOrderByCreatedAtDesc(tenantId);
-    return events.subList(0, Math.min(limit, events.size()));
+  public EventCursor.Page<UsageEvent> listEvents(
+      String tenantId,
+      String providerId,
+      String model,
+      String serviceCode,
+      LocalDateTime from,
+      LocalDateTime to,
+      String cursor,
+      int limit) {
+    EventCursor position = EventCursor.decode(cursor);
+    // One extra row tells us whether there is a next page without a count query.
+    List<UsageEvent> events =
+        usageRepository.search(
+            blankToNull(tenantId),
+            blankToNull(providerId),
+            blankToNull(model),
+            blankToNull(serviceCode),
+            from,
+            to,
+            position != null ? position.createdAt() : null,
+            position != null ? position.id() : null,
+            PageRequest.of(0, limit + 1));
+    if (events.size() <= limit) {
+      return new EventCursor.Page<>(events, null);
+    }
+    List<UsageEvent> page = events.subList(0, limit);
+    UsageEvent last = page.get(page.size() - 1);
+    return new EventCursor.Page<>(page, new EventCursor(last.getCreatedAt(), last.getId()).encode());
   }
 
-  public List<UsageEvent> listEventsAll(int limit) {
-    List<UsageEvent> events = usageRepository.findTop200ByOrderByCreatedAtDesc();
-    return events.subList(0, Math.min(limit, events.size()));
+  private String blankToNull(String value) {
+    return value == null || value.isBlank() ? null : value;
+  }
+
+  private long toLong(Number value) {
+    return value != null ? value.longValue() : 0L;
+  }
+
+  private BigDecimal toBigDecimal(Number value) {
+    if (value == null) {
+      return BigDecimal.ZERO;
+    }
+    return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
   }
 
   public record Totals(int tokens, double costUsd) {}
@@ -42,12 +42,18 @@ export const fieldHelp = {
   providersEnabled: 'Activa o desactiva el proveedor para este tenant.',
   policiesMaxRequestsPerMinute:
     'Límite máximo de peticiones por minuto para este tenant.',
+  policiesMaxTokensPerMinute:
+    'Tokens por minuto reservados por proveedor antes de invocarlo (0 = sin límite).',
   policiesMaxTokensPerDay:
     'Presupuesto diario de tokens permitido antes de bloquear.',
   policiesMaxCostPerDayUsd:
     'Coste máximo diario en USD permitido antes de bloquear.',
   policiesRedactionEnabled:
     'Activa la redacción de datos sensibles antes de enviar a IA.',
+  policiesResponseCacheTtlSeconds:
+    'Segundos que se reutiliza una respuesta idéntica con temperature 0 (0 = sin caché).',
+  policiesResponseCacheMaxBytes:
+    'Memoria máxima de la caché de respuestas del tenant (0 = valor por defecto del servidor).',
   policiesMetadata:
     'Metadatos libres para etiquetar planes, SLA o segmentaciones.',
   pricingProviderType: 'Proveedor al que aplica esta tarifa.',
@@ -94,6 +100,10 @@ export const fieldHelp = {
   runtimeModel: 'Modelo del proveedor que se utilizara en la llamada.',
   runtimePayload:
     'Payload JSON enviado al adapter (ej: {"messages":[{"role":"user","content":"Hola"}]}).',
+  serviceFailoverProviderId:
+    'Provider secundario al que se desvían las llamadas si el principal falla o su circuito está abierto.',
+  serviceHedgingEnabled:
+    'Si una llamada tarda más de lo habitual, lanza una copia (al provider de failover o al mismo) y usa la primera respuesta. Los tokens extra se contabilizan aparte.',
   serviceSystemPrompt:
     'Define el comportamiento global del servicio: tono, reglas y contexto. Evita datos sensibles y mantén instrucciones claras.',
   tenantsBillingEmail: 'Email del titular para facturación y pagos de la suscripción.',
@@ -21,9 +21,12 @@ export function PoliciesPage() {
   const [listLoading, setListLoading] = useState(false);
   const [form, setForm] = useState({
     maxRequestsPerMinute: 60,
+    maxTokensPerMinute: 0,
     maxTokensPerDay: 200000,
     maxCostPerDayUsd: 0,
     redactionEnabled: true,
+    responseCacheTtlSeconds: 0,
+    responseCacheMaxBytes: 0,
     metadata: '{}'
   });
 
@@ -45,9 +48,12 @@ export function PoliciesPage() {
           setPolicy(current);
           setForm({
             maxRequestsPerMinute: current.maxRequestsPerMinute ?? 60,
+            maxTokensPerMinute: current.maxTokensPerMinute ?? 0,
             maxTokensPerDay: current.maxTokensPerDay ?? 200000,
             maxCostPerDayUsd: Number(current.maxCostPerDayUsd ?? 0),
             redactionEnabled: Boolean(current.redactionEnabled),
+            responseCacheTtlSeconds: current.responseCacheTtlSeconds ?? 0,
+            responseCacheMaxBytes: current.responseCacheMaxBytes ?? 0,
             metadata: JSON.stringify(current.metadata ?? {}, null, 2)
           });
         } else {
@@ -90,9 +96,12 @@ export function PoliciesPage() {
     try {
       const payload = {
         maxRequestsPerMinute: Number(form.maxRequestsPerMinute),
+        maxTokensPerMinute: Number(form.maxTokensPerMinute),
         maxTokensPerDay: Number(form.maxTokensPerDay),
         maxCostPerDayUsd: Number(form.maxCostPerDayUsd),
         redactionEnabled: form.redactionEnabled,
+        responseCacheTtlSeconds: Number(form.responseCacheTtlSeconds),
+        responseCacheMaxBytes: Number(form.responseCacheMaxBytes),
         metadata: form.metadata ? JSON.parse(form.metadata) : {}
       };
       const updated = await api.upsertPolicy(selectedTenantId, payload);
@@ -259,6 +268,17 @@ export function PoliciesPage() {
                 disabled={!canEdit}
               />
             </FieldWithHelp>
+            <FieldWithHelp help="policiesMaxTokensPerMinute">
+              <input
+                type="number"
+                placeholder={t('Tokens por minuto (ej: 90000)')}
+                value={form.maxTokensPerMinute}
+                onChange={(event) =>
+                  setForm({ ...form, maxTokensPerMinute: Number(event.target.value) })
+                }
+                disabled={!canEdit}
+              />
+            </FieldWithHelp>
             <FieldWithHelp help="policiesMaxTokensPerDay">
               <input
                 type="number"
@@ -301,6 +321,28 @@ export function PoliciesPage() {
                 {t('Redacción habilitada')}
               </label>
             </FieldWithHelp>
+            <FieldWithHelp help="policiesResponseCacheTtlSeconds">
+              <input
+                type="number"
+                placeholder={t('TTL caché de respuestas en segundos (0 = desactivada)')}
+                value={form.responseCacheTtlSeconds}
+                onChange={(event) =>
+                  setForm({ ...form, responseCacheTtlSeconds: Number(event.target.value) })
+                }
+                disabled={!canEdit}
+              />
+            </FieldWithHelp>
+            <FieldWithHelp help="policiesResponseCacheMaxBytes">
+              <input
+                type="number"
+                placeholder={t('Caché de respuestas: bytes máximos (0 = por defecto)')}
+                value={form.responseCacheMaxBytes}
+                onChange={(event) =>
+                  setForm({ ...form, responseCacheMaxBytes: Number(event.target.value) })
+                }
+                disabled={!canEdit}
+              />
+            </FieldWithHelp>
             <FieldWithHelp help="policiesMetadata">
               <textarea
                 placeholder={t('metadata JSON (ej: {"plan":"pro"})')}
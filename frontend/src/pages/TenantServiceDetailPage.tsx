@@ -68,6 +68,8 @@ export function TenantServiceDetailPage() {
     apiBaseUrl: "",
     systemPrompt: "",
     providerId: "",
+    failoverProviderId: "",
+    hedgingEnabled: false,
     pricingId: "",
     policyId: "",
   });
@@ -278,6 +280,8 @@ export function TenantServiceDetailPage() {
           apiBaseUrl: match.apiBaseUrl || "",
           systemPrompt: match.systemPrompt || "",
           providerId: match.providerId || "",
+          failoverProviderId: match.failoverProviderId || "",
+          hedgingEnabled: Boolean(match.hedgingEnabled),
           pricingId: match.pricingId || "",
           policyId: match.policyId || "",
         });
@@ -359,6 +363,8 @@ export function TenantServiceDetailPage() {
         apiBaseUrl: serviceConfigDraft.apiBaseUrl,
         systemPrompt: serviceConfigDraft.systemPrompt,
         providerId: serviceConfigDraft.providerId,
+        failoverProviderId: serviceConfigDraft.failoverProviderId,
+        hedgingEnabled: serviceConfigDraft.hedgingEnabled,
         pricingId: serviceConfigDraft.pricingId,
         policyId: serviceConfigDraft.policyId,
       });
@@ -865,6 +871,51 @@ export function TenantServiceDetailPage() {
                       </select>
                     </label>
                   </div>
+                  <div className="col-12 col-md-4">
+                    <label>
+                      <span className="label-with-tooltip">
+                        {t("Provider de failover")}
+                        <InfoTooltip field="serviceFailoverProviderId" />
+                      </span>
+                      <select
+                        className="form-select"
+                        value={serviceConfigDraft.failoverProviderId}
+                        onChange={(event) =>
+                          setServiceConfigDraft((prev) => ({
+                            ...prev,
+                            failoverProviderId: event.target.value,
+                          }))
+                        }
+                      >
+                        <option value="">{t("Sin failover")}</option>
+                        {providers
+                          .filter((provider) => provider.id !== serviceConfigDraft.providerId)
+                          .map((provider) => (
+                            <option key={provider.id} value={provider.id}>
+                              {provider.displayName} · {provider.type}
+                            </option>
+                          ))}
+                      </select>
+                    </label>
+                  </div>
+                  <div className="col-12 col-md-4">
+                    <label>
+                      <input
+                        type="checkbox"
+                        checked={serviceConfigDraft.hedgingEnabled}
+                        onChange={(event) =>
+                          setServiceConfigDraft((prev) => ({
+                            ...prev,
+                            hedgingEnabled: event.target.checked,
+                          }))
+                        }
+                      />{" "}
+                      <span className="label-with-tooltip">
+                        {t("Hedging de peticiones")}
+                        <InfoTooltip field="serviceHedgingEnabled" />
+                      </span>
+                    </label>
+                  </div>
                   <div className="col-12 col-md-4">
                     <label>
                       {t("Pricing")}
@@ -35,9 +35,12 @@ export type Policy = {
   id: string;
   tenantId: string;
   maxRequestsPerMinute: number;
+  maxTokensPerMinute: number;
   maxTokensPerDay: number;
   maxCostPerDayUsd: number;
   redactionEnabled: boolean;
+  responseCacheTtlSeconds: number;
+  responseCacheMaxBytes: number;
   metadata: Record<string, unknown>;
   createdAt: string;
   updatedAt: string;
@@ -147,6 +150,8 @@ export type TenantServiceOverview = {
   configStatus: 'active' | 'suspended';
   systemPrompt: string | null;
   providerId?: string | null;
+  failoverProviderId?: string | null;
+  hedgingEnabled?: boolean;
   pricingId?: string | null;
   policyId?: string | null;
   serviceApiKey?: string | null;
@@ -164,6 +169,7 @@ export type TenantServiceEndpoint = {
   baseUrl?: string | null;
   headers?: Record<string, string> | null;
   responsePath?: string | null;
+  cacheTtlSeconds?: number | null;
   enabled: boolean;
   createdAt: string;
   updatedAt: string;
@@ -0,0 +1,36 @@
+-- Opt-in request hedging per tenant service, and a flag for the extra attempts in usage
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'tenant_service_configs'
+    AND column_name = 'hedgingEnabled'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE tenant_service_configs ADD COLUMN hedgingEnabled tinyint(1) NOT NULL DEFAULT 0;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'usage_events'
+    AND column_name = 'hedge'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE usage_events ADD COLUMN hedge tinyint(1) NOT NULL DEFAULT 0 AFTER costUsd;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,11 @@
+-- Append-only log of kill-switch flips; every replica tails it to apply changes within a second
+CREATE TABLE IF NOT EXISTS kill_switch_changes (
+  id bigint NOT NULL AUTO_INCREMENT,
+  scope varchar(16) NOT NULL,
+  tenantId varchar(36) NULL,
+  enabled tinyint(1) NOT NULL,
+  origin varchar(36) NOT NULL,
+  createdAt datetime(3) NOT NULL,
+  PRIMARY KEY (id),
+  KEY idx_kill_switch_changes_created (createdAt)
+) ENGINE=InnoDB;
@@ -0,0 +1,18 @@
+-- Add tokens-per-minute budget (0 = unlimited) to policies
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'policies'
+    AND column_name = 'maxTokensPerMinute'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE policies ADD COLUMN maxTokensPerMinute int NOT NULL DEFAULT 0 AFTER maxRequestsPerMinute;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
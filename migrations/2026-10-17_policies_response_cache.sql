@@ -0,0 +1,36 @@
+-- Opt-in exact response cache per policy: TTL (0 = disabled) and byte budget (0 = server default)
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'policies'
+    AND column_name = 'responseCacheTtlSeconds'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE policies ADD COLUMN responseCacheTtlSeconds int NOT NULL DEFAULT 0 AFTER redactionEnabled;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'policies'
+    AND column_name = 'responseCacheMaxBytes'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE policies ADD COLUMN responseCacheMaxBytes bigint NOT NULL DEFAULT 0 AFTER responseCacheTtlSeconds;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,38 @@
+-- Background re-pricing of historical usage after a pricing model changes
+CREATE TABLE IF NOT EXISTS repricing_jobs (
+  id varchar(36) NOT NULL,
+  pricingId varchar(36) NOT NULL,
+  status varchar(16) NOT NULL,
+  fromDate datetime NULL,
+  checkpointCreatedAt datetime NULL,
+  checkpointId varchar(36) NULL,
+  scanned bigint NOT NULL DEFAULT 0,
+  updated bigint NOT NULL DEFAULT 0,
+  owner varchar(64) NULL,
+  heartbeatAt datetime NULL,
+  error text NULL,
+  createdAt datetime NOT NULL,
+  updatedAt datetime NOT NULL,
+  PRIMARY KEY (id),
+  KEY idx_repricing_jobs_status (status, createdAt),
+  KEY idx_repricing_jobs_pricing (pricingId, status)
+) ENGINE=InnoDB;
+
+-- Lets a job walk one model's usage in (createdAt, id) order
+SET @usage_model_idx_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'usage_events'
+    AND index_name = 'idx_usage_events_model_created'
+);
+
+SET @usage_model_idx_ddl = IF(
+  @usage_model_idx_exists = 0,
+  'CREATE INDEX idx_usage_events_model_created ON usage_events (model, createdAt, id);',
+  'SELECT 1'
+);
+
+PREPARE stmt_usage_model_idx FROM @usage_model_idx_ddl;
+EXECUTE stmt_usage_model_idx;
+DEALLOCATE PREPARE stmt_usage_model_idx;
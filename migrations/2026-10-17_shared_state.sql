@@ -0,0 +1,8 @@
+-- Cluster-wide counters leased by gateway replicas (rate limits)
+CREATE TABLE IF NOT EXISTS shared_counters (
+  counterKey varchar(191) NOT NULL,
+  windowStart datetime(3) NOT NULL,
+  used bigint NOT NULL DEFAULT 0,
+  PRIMARY KEY (counterKey, windowStart),
+  KEY idx_shared_counters_window (windowStart)
+) ENGINE=InnoDB;
@@ -0,0 +1,18 @@
+-- Optional secondary provider used when the primary's circuit is open or its call fails
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'tenant_service_configs'
+    AND column_name = 'failoverProviderId'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE tenant_service_configs ADD COLUMN failoverProviderId varchar(36) NULL AFTER providerId;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
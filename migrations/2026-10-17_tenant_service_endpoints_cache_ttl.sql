@@ -0,0 +1,18 @@
+-- Add per-endpoint response cache TTL (seconds) to tenant_service_endpoints
+SET @col_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.columns
+  WHERE table_schema = DATABASE()
+    AND table_name = 'tenant_service_endpoints'
+    AND column_name = 'cacheTtlSeconds'
+);
+
+SET @ddl = IF(
+  @col_exists = 0,
+  'ALTER TABLE tenant_service_endpoints ADD COLUMN cacheTtlSeconds int NULL AFTER responsePath;',
+  'SELECT 1'
+);
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
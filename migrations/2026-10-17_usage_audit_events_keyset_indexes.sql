@@ -0,0 +1,69 @@
+-- Composite indexes backing keyset pagination on (createdAt, id), per tenant and global
+SET @usage_tenant_idx_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'usage_events'
+    AND index_name = 'idx_usage_events_tenant_created'
+);
+
+SET @usage_created_idx_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'usage_events'
+    AND index_name = 'idx_usage_events_created'
+);
+
+SET @audit_tenant_idx_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'audit_events'
+    AND index_name = 'idx_audit_events_tenant_created'
+);
+
+SET @audit_created_idx_exists = (
+  SELECT COUNT(*)
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE()
+    AND table_name = 'audit_events'
+    AND index_name = 'idx_audit_events_created'
+);
+
+SET @usage_tenant_idx_ddl = IF(
+  @usage_tenant_idx_exists = 0,
+  'CREATE INDEX idx_usage_events_tenant_created ON usage_events (tenantId, createdAt, id);',
+  'SELECT 1'
+);
+SET @usage_created_idx_ddl = IF(
+  @usage_created_idx_exists = 0,
+  'CREATE INDEX idx_usage_events_created ON usage_events (createdAt, id);',
+  'SELECT 1'
+);
+SET @audit_tenant_idx_ddl = IF(
+  @audit_tenant_idx_exists = 0,
+  'CREATE INDEX idx_audit_events_tenant_created ON audit_events (tenantId, createdAt, id);',
+  'SELECT 1'
+);
+SET @audit_created_idx_ddl = IF(
+  @audit_created_idx_exists = 0,
+  'CREATE INDEX idx_audit_events_created ON audit_events (createdAt, id);',
+  'SELECT 1'
+);
+
+PREPARE stmt_usage_tenant_idx FROM @usage_tenant_idx_ddl;
+EXECUTE stmt_usage_tenant_idx;
+DEALLOCATE PREPARE stmt_usage_tenant_idx;
+
+PREPARE stmt_usage_created_idx FROM @usage_created_idx_ddl;
+EXECUTE stmt_usage_created_idx;
+DEALLOCATE PREPARE stmt_usage_created_idx;
+
+PREPARE stmt_audit_tenant_idx FROM @audit_tenant_idx_ddl;
+EXECUTE stmt_audit_tenant_idx;
+DEALLOCATE PREPARE stmt_audit_tenant_idx;
+
+PREPARE stmt_audit_created_idx FROM @audit_created_idx_ddl;
+EXECUTE stmt_audit_created_idx;
+DEALLOCATE PREPARE stmt_audit_created_idx;
@@ -0,0 +1,16 @@
+-- Hourly and daily usage aggregates per tenant, provider, model and service
+CREATE TABLE IF NOT EXISTS usage_rollups (
+  granularity varchar(8) NOT NULL,
+  bucketStart datetime NOT NULL,
+  tenantId varchar(36) NOT NULL,
+  providerId varchar(36) NOT NULL,
+  model varchar(64) NOT NULL,
+  serviceCode varchar(64) NOT NULL DEFAULT '',
+  requests bigint NOT NULL DEFAULT 0,
+  tokensIn bigint NOT NULL DEFAULT 0,
+  tokensOut bigint NOT NULL DEFAULT 0,
+  costUsd decimal(16,6) NOT NULL DEFAULT 0,
+  updatedAt timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (granularity, bucketStart, tenantId, providerId, model, serviceCode),
+  KEY idx_usage_rollups_tenant_bucket (tenantId, granularity, bucketStart)
+) ENGINE=InnoDB;